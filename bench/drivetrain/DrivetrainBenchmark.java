@@ -0,0 +1,70 @@
+package drivetrain;
+
+import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.templates.Vars;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of the Drivetrain driving methods, including the speed factor
+ * calculation done by straight().
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DrivetrainBenchmark {
+
+    private static final int INPUTS = 1024;
+
+    Drivetrain drivetrain;
+    double[] moves = new double[INPUTS];
+    double[] rotates = new double[INPUTS];
+    int index;
+
+    @Setup
+    public void setUp() {
+        Encoder left = new Encoder(1, 2);
+        Encoder right = new Encoder(3, 4);
+        MonitoredGearbox leftGearbox = new MonitoredGearbox(1, 2, left);
+        MonitoredGearbox rightGearbox = new MonitoredGearbox(3, 4, right);
+        leftGearbox.setWheelRadius(Vars.WHEEL_RADIUS);
+        rightGearbox.setWheelRadius(Vars.WHEEL_RADIUS);
+        left.setPeriod(1);
+        right.setPeriod(1);
+        drivetrain = new Drivetrain(leftGearbox, rightGearbox);
+        Random random = new Random(0);
+        for (int i = 0; i < INPUTS; i++) {
+            moves[i] = random.nextDouble() * 2 - 1;
+            rotates[i] = random.nextDouble() * 2 - 1;
+        }
+    }
+
+    private int next() {
+        return index = (index + 1) & (INPUTS - 1);
+    }
+
+    @Benchmark
+    public double arcade() {
+        int i = next();
+        drivetrain.arcade(moves[i], rotates[i]);
+        return drivetrain.getLeftGearbox().get();
+    }
+
+    @Benchmark
+    public double straight() {
+        drivetrain.straight(moves[next()]);
+        return drivetrain.getLeftGearbox().getSpeedFactor();
+    }
+
+    @Benchmark
+    public void twoJoystickDrive(Blackhole blackhole) {
+        int i = next();
+        drivetrain.twoJoystickDrive(moves[i], rotates[i]);
+        blackhole.consume(drivetrain.getRightGearbox().get());
+    }
+}
@@ -0,0 +1,38 @@
+package drivetrain;
+
+import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.templates.Vars;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of reading an Encoder the way MonitoredGearbox does.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EncoderBenchmark {
+
+    Encoder encoder;
+
+    @Setup
+    public void setUp() {
+        encoder = new Encoder(1, 2);
+        encoder.setDistancePerPulse(2 * Math.PI * Vars.WHEEL_RADIUS / Vars.TICKS);
+        encoder.setTicks(12345);
+        encoder.setPeriod(0.002);
+    }
+
+    @Benchmark
+    public double getRate() {
+        return encoder.getRate();
+    }
+
+    @Benchmark
+    public double getDistance() {
+        return encoder.getDistance();
+    }
+}
@@ -0,0 +1,51 @@
+package drivetrain;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of fanning an output out to the controllers of a Gearbox.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GearboxBenchmark {
+
+    private static final int INPUTS = 1024;
+
+    Gearbox twoControllers;
+    Gearbox threeControllers;
+    double[] speeds = new double[INPUTS];
+    int index;
+
+    @Setup
+    public void setUp() {
+        twoControllers = new Gearbox(1, 2);
+        threeControllers = new Gearbox(3, 4, 5);
+        Random random = new Random(0);
+        for (int i = 0; i < INPUTS; i++) {
+            speeds[i] = random.nextDouble() * 2.4 - 1.2;
+        }
+    }
+
+    private double nextSpeed() {
+        index = (index + 1) & (INPUTS - 1);
+        return speeds[index];
+    }
+
+    @Benchmark
+    public double setTwoControllers() {
+        twoControllers.set(nextSpeed());
+        return twoControllers.get();
+    }
+
+    @Benchmark
+    public double setThreeControllers() {
+        threeControllers.set(nextSpeed());
+        return threeControllers.get();
+    }
+}
@@ -0,0 +1,43 @@
+package drivetrain;
+
+import edu.wpi.first.wpilibj.templates.Utils;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cost of clamping a value with Utils.limit.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UtilsBenchmark {
+
+    private static final int INPUTS = 1024;
+
+    double[] values = new double[INPUTS];
+    int index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(0);
+        for (int i = 0; i < INPUTS; i++) {
+            values[i] = random.nextDouble() * 4 - 2;
+        }
+    }
+
+    @Benchmark
+    public double limit() {
+        index = (index + 1) & (INPUTS - 1);
+        return Utils.limit(values[index], -1, 1);
+    }
+
+    @Benchmark
+    public double limitSpeed() {
+        index = (index + 1) & (INPUTS - 1);
+        return Utils.limitSpeed(values[index]);
+    }
+}
@@ -0,0 +1,309 @@
+package drivetrain;
+
+import edu.wpi.first.wpilibj.TimeSource;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the registered drivetrain and gearbox tasks at a fixed rate on a
+ * dedicated thread. Each cycle is scheduled against an absolute deadline, so
+ * the time spent running the tasks does not stretch the period. The loop keeps
+ * track of how late each cycle woke up (jitter), how many cycles ran past the
+ * next deadline (overruns) and how many periods were skipped because of them
+ * (missed deadlines).
+ *
+ * The loop measures time with a {@link TimeSource}. With a simulated clock the
+ * thread cannot be started, since it would spin waiting for time that only
+ * the simulation advances; the simulation calls {@link #runCycle()} at each
+ * deadline instead.
+ */
+public class ControlLoop {
+
+    /**
+     * The slowest supported loop rate, in Hz.
+     */
+    public static final double MIN_FREQUENCY = 50;
+    /**
+     * The fastest supported loop rate, in Hz.
+     */
+    public static final double MAX_FREQUENCY = 1000;
+
+    private final long periodNanos;
+    private final TimeSource timeSource;
+    private final Object lock = new Object();
+    private volatile Runnable[] tasks = new Runnable[0];
+    private volatile boolean running;
+    private Thread thread;
+
+    private volatile long cycles;
+    private volatile long overruns;
+    private volatile long missedDeadlines;
+    private volatile long totalJitterNanos;
+    private volatile long maxJitterNanos;
+    private volatile long lastExecutionNanos;
+    private volatile long maxExecutionNanos;
+    private volatile RuntimeException lastError;
+
+    /**
+     * Create a loop running at the given rate.
+     *
+     * @param frequency loop rate in Hz, between {@link #MIN_FREQUENCY} and
+     * {@link #MAX_FREQUENCY}
+     */
+    public ControlLoop(double frequency) {
+        this(frequency, TimeSource.SYSTEM);
+    }
+
+    /**
+     * Create a loop running at the given rate on the given clock.
+     *
+     * @param frequency loop rate in Hz, between {@link #MIN_FREQUENCY} and
+     * {@link #MAX_FREQUENCY}
+     * @param timeSource the clock measuring the cycles
+     */
+    public ControlLoop(double frequency, TimeSource timeSource) {
+        if (timeSource == null) {
+            throw new NullPointerException("Given time source was null");
+        }
+        if (!(frequency >= MIN_FREQUENCY && frequency <= MAX_FREQUENCY)) {
+            throw new IllegalArgumentException("Frequency must be between "
+                    + MIN_FREQUENCY + " and " + MAX_FREQUENCY + " Hz, was " + frequency);
+        }
+        this.periodNanos = Math.round(1e9 / frequency);
+        this.timeSource = timeSource;
+    }
+
+    /**
+     * Add a task to run every cycle. Tasks run in the order they were added.
+     *
+     * @param task the task to run
+     */
+    public void add(Runnable task) {
+        if (task == null) {
+            throw new NullPointerException("Given task was null");
+        }
+        synchronized (lock) {
+            Runnable[] old = tasks;
+            Runnable[] updated = new Runnable[old.length + 1];
+            System.arraycopy(old, 0, updated, 0, old.length);
+            updated[old.length] = task;
+            tasks = updated;
+        }
+    }
+
+    /**
+     * Remove a task from the loop.
+     *
+     * @param task the task to remove
+     * @return true if the task was registered
+     */
+    public boolean remove(Runnable task) {
+        synchronized (lock) {
+            Runnable[] old = tasks;
+            for (int i = 0; i < old.length; i++) {
+                if (old[i] == task) {
+                    Runnable[] updated = new Runnable[old.length - 1];
+                    System.arraycopy(old, 0, updated, 0, i);
+                    System.arraycopy(old, i + 1, updated, i, old.length - i - 1);
+                    tasks = updated;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Start the loop thread. Does nothing if the loop is already running.
+     *
+     * @throws IllegalStateException if the loop does not use
+     * {@link TimeSource#SYSTEM}; a simulated loop is driven by runCycle()
+     */
+    public void start() {
+        if (timeSource != TimeSource.SYSTEM) {
+            throw new IllegalStateException("A loop on a simulated clock must be driven by runCycle()");
+        }
+        synchronized (lock) {
+            if (running) {
+                return;
+            }
+            running = true;
+            thread = new Thread(new Runnable() {
+                public void run() {
+                    loop();
+                }
+            }, "ControlLoop");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MAX_PRIORITY);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stop the loop and wait for the current cycle to finish.
+     */
+    public void stop() {
+        Thread t;
+        synchronized (lock) {
+            running = false;
+            t = thread;
+            thread = null;
+        }
+        if (t != null && t != Thread.currentThread()) {
+            LockSupport.unpark(t);
+            try {
+                t.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void loop() {
+        long deadline = timeSource.nanoTime() + periodNanos;
+        while (running) {
+            long now = timeSource.nanoTime();
+            while (now < deadline) {
+                LockSupport.parkNanos(deadline - now);
+                if (!running) {
+                    return;
+                }
+                now = timeSource.nanoTime();
+            }
+            recordJitter(now - deadline);
+
+            long end = runTasks(now);
+
+            long next = deadline + periodNanos;
+            if (end >= next) {
+                long missed = (end - deadline) / periodNanos;
+                overruns++;
+                missedDeadlines += missed;
+                next = deadline + (missed + 1) * periodNanos;
+            }
+            deadline = next;
+        }
+    }
+
+    /**
+     * Run every task once, from the thread of the caller. Meant for loops on
+     * a simulated clock, which are not started but run at each deadline by
+     * the simulation.
+     */
+    public void runCycle() {
+        runTasks(timeSource.nanoTime());
+    }
+
+    private long runTasks(long start) {
+        Runnable[] current = tasks;
+        for (int i = 0; i < current.length; i++) {
+            try {
+                current[i].run();
+            } catch (RuntimeException ex) {
+                lastError = ex;
+            }
+        }
+
+        long end = timeSource.nanoTime();
+        long execution = end - start;
+        lastExecutionNanos = execution;
+        if (execution > maxExecutionNanos) {
+            maxExecutionNanos = execution;
+        }
+        cycles++;
+        return end;
+    }
+
+    private void recordJitter(long jitter) {
+        totalJitterNanos += jitter;
+        if (jitter > maxJitterNanos) {
+            maxJitterNanos = jitter;
+        }
+    }
+
+    /**
+     * Clear all the statistics gathered so far.
+     */
+    public void resetStatistics() {
+        cycles = 0;
+        overruns = 0;
+        missedDeadlines = 0;
+        totalJitterNanos = 0;
+        maxJitterNanos = 0;
+        lastExecutionNanos = 0;
+        maxExecutionNanos = 0;
+        lastError = null;
+    }
+
+    /**
+     * @return The loop period in seconds
+     */
+    public double getPeriod() {
+        return periodNanos / 1e9;
+    }
+
+    public long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    public TimeSource getTimeSource() {
+        return timeSource;
+    }
+
+    /**
+     * @return The number of cycles run since the last reset
+     */
+    public long getCycles() {
+        return cycles;
+    }
+
+    /**
+     * @return The number of cycles whose tasks finished after the next
+     * deadline
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+
+    /**
+     * @return The number of periods skipped because of overruns
+     */
+    public long getMissedDeadlines() {
+        return missedDeadlines;
+    }
+
+    /**
+     * @return The average delay between a deadline and the cycle actually
+     * starting, in nanoseconds
+     */
+    public double getAverageJitterNanos() {
+        long n = cycles;
+        return n == 0 ? 0 : (double) totalJitterNanos / n;
+    }
+
+    /**
+     * @return The worst delay between a deadline and the cycle actually
+     * starting, in nanoseconds
+     */
+    public long getMaxJitterNanos() {
+        return maxJitterNanos;
+    }
+
+    public long getLastExecutionNanos() {
+        return lastExecutionNanos;
+    }
+
+    public long getMaxExecutionNanos() {
+        return maxExecutionNanos;
+    }
+
+    /**
+     * @return The last exception thrown by a task, or null if none was thrown
+     */
+    public RuntimeException getLastError() {
+        return lastError;
+    }
+}
@@ -1,5 +1,7 @@
 package drivetrain;
 
+import edu.wpi.first.wpilibj.SyncGroup;
+import edu.wpi.first.wpilibj.TimeSource;
 import edu.wpi.first.wpilibj.templates.Vars;
 
 /**
@@ -9,10 +11,29 @@ import edu.wpi.first.wpilibj.templates.Vars;
 public class Drivetrain {
 
     private MonitoredGearbox leftGearbox, rightGearbox;
+    private byte syncGroup;
+    private final SyncGroup syncGroups = new SyncGroup();
+    private final SensorSnapshot sensors;
+    private InputPipeline moveShaper, rotateShaper;
+    private boolean simulatedEncoders = true;
+    private double maxVelocity = 1;
 
     public Drivetrain(MonitoredGearbox leftGearbox, MonitoredGearbox rightGearbox) {
+        this(leftGearbox, rightGearbox, TimeSource.SYSTEM);
+    }
+
+    /**
+     * Create a drivetrain whose sensor readings are stamped with the given
+     * clock, which should be the one of the loop it is driven from.
+     *
+     * @param leftGearbox the left side
+     * @param rightGearbox the right side
+     * @param timeSource the clock of the control loop
+     */
+    public Drivetrain(MonitoredGearbox leftGearbox, MonitoredGearbox rightGearbox, TimeSource timeSource) {
         this.leftGearbox = leftGearbox;
         this.rightGearbox = rightGearbox;
+        this.sensors = new SensorSnapshot(timeSource);
     }
 
     /**
@@ -23,16 +44,24 @@ public class Drivetrain {
     public void straight(double speed) {
         setLeftSpeed(speed);
         setRightSpeed(speed);
-        scaleFactors(speed, speed);
+        updateSyncGroup();
+        scaleFactors(speed, speed, readSensors());
     }
 
     public void rotate(double speed) {
         setLeftSpeed(speed);
         setRightSpeed(-speed);
-        scaleFactors(speed, -speed);
+        updateSyncGroup();
+        scaleFactors(speed, -speed, readSensors());
     }
 
     public void arcade(double moveValue, double rotateValue) {
+        if (moveShaper != null) {
+            moveValue = moveShaper.apply(moveValue);
+        }
+        if (rotateShaper != null) {
+            rotateValue = rotateShaper.apply(rotateValue);
+        }
         double leftMotorSpeed;
         double rightMotorSpeed;
         if (moveValue > 0.0) {
@@ -62,16 +91,134 @@ public class Drivetrain {
     public void twoJoystickDrive(double leftSpeed, double rightSpeed) {
         setLeftSpeed(leftSpeed);
         setRightSpeed(rightSpeed);
+        updateSyncGroup();
     }
 
+    /**
+     * Set the speed of the left side. With a sync group, the speed only
+     * takes effect on the next updateSyncGroup().
+     *
+     * @param speed speed in range of [-1.0,1.0]
+     */
     public void setLeftSpeed(double speed) {
-        leftGearbox.set(speed);
-        leftGearbox.getEncoder().setRate(speed);
+        leftGearbox.set(speed, syncGroup);
+        if (simulatedEncoders) {
+            leftGearbox.getEncoder().setRate(speed);
+        }
     }
 
+    /**
+     * Set the speed of the right side. With a sync group, the speed only
+     * takes effect on the next updateSyncGroup().
+     *
+     * @param speed speed in range of [-1.0,1.0]
+     */
     public void setRightSpeed(double speed) {
-        rightGearbox.set(-speed);
-        rightGearbox.getEncoder().setRate(speed);        
+        rightGearbox.set(-speed, syncGroup);
+        if (simulatedEncoders) {
+            rightGearbox.getEncoder().setRate(speed);
+        }
+    }
+
+    /**
+     * Select whether setting the speed of a side also sets the rate of its
+     * encoder to that speed, as a stand-in for encoders nothing drives. It is
+     * on by default; turn it off when real encoders or a simulated plant
+     * drive the encoders, or the speed factors only see the commanded speeds.
+     *
+     * @param simulatedEncoders true to set the encoder rates to the speeds
+     */
+    public void setSimulatedEncoders(boolean simulatedEncoders) {
+        this.simulatedEncoders = simulatedEncoders;
+    }
+
+    public boolean hasSimulatedEncoders() {
+        return simulatedEncoders;
+    }
+
+    /**
+     * Set the velocity the sides reach at full output, which turns measured
+     * velocities into speeds in range of [-1.0,1.0] before they are compared
+     * with {@link Vars.Gearbox#NO_SCALE_SPEED}. The default of 1 suits the
+     * simulated encoders, whose rate is the speed itself.
+     *
+     * @param maxVelocity the velocity at full output, in encoder units per
+     * second
+     */
+    public void setMaxVelocity(double maxVelocity) {
+        if (!(maxVelocity > 0)) {
+            throw new IllegalArgumentException("Max velocity must be positive");
+        }
+        this.maxVelocity = maxVelocity;
+    }
+
+    public double getMaxVelocity() {
+        return maxVelocity;
+    }
+
+    /**
+     * Make both sides stage their speeds in a sync group, so the driving
+     * methods switch all the controllers of both sides in a single update.
+     * The groups are owned by this drivetrain, and setting 0 removes the
+     * controllers from them again.
+     *
+     * @param syncGroup the sync group, or 0 to set speeds immediately
+     */
+    public void setSyncGroup(byte syncGroup) {
+        SyncGroup groups = syncGroup != 0 ? syncGroups : null;
+        if (leftGearbox.getSyncGroups() != groups) {
+            leftGearbox.setSyncGroups(groups);
+        }
+        if (rightGearbox.getSyncGroups() != groups) {
+            rightGearbox.setSyncGroups(groups);
+        }
+        this.syncGroup = syncGroup;
+    }
+
+    public byte getSyncGroup() {
+        return syncGroup;
+    }
+
+    /**
+     * @return the sync groups owned by this drivetrain
+     */
+    public SyncGroup getSyncGroups() {
+        return syncGroups;
+    }
+
+    /**
+     * Apply the speeds staged in the sync group of this drivetrain.
+     */
+    public void updateSyncGroup() {
+        if (syncGroup != 0) {
+            syncGroups.update(syncGroup);
+        }
+    }
+
+    /**
+     * Shape the move value of arcade() before driving.
+     *
+     * @param moveShaper the pipeline, or null to use the value as it is
+     */
+    public void setMoveShaper(InputPipeline moveShaper) {
+        this.moveShaper = moveShaper;
+    }
+
+    public InputPipeline getMoveShaper() {
+        return moveShaper;
+    }
+
+    /**
+     * Shape the rotate value of arcade() before driving.
+     *
+     * @param rotateShaper the pipeline, or null to use the value as it is
+     */
+    public void setRotateShaper(InputPipeline rotateShaper) {
+        this.rotateShaper = rotateShaper;
+    }
+
+    public InputPipeline getRotateShaper() {
+        return rotateShaper;
     }
 
     public void setLeftSpeedFactor(double factor) {
@@ -82,26 +229,80 @@ public class Drivetrain {
         rightGearbox.setSpeedFactor(factor);
     }
 
-    private void scaleFactors(double wantedLeftSpeed, double wantedRightSpeed) {
+    /**
+     * Slow down the stronger side, so both sides turn at the wanted speeds.
+     * The strength of a side is its measured speed over the output it got,
+     * and the ratio of the factors is moved a step towards the ratio of the
+     * strengths, so it settles once the sides match.
+     */
+    private void scaleFactors(double wantedLeftSpeed, double wantedRightSpeed, SensorSnapshot sensors) {
         final double NO_SCALE_SPEED = Vars.Gearbox.NO_SCALE_SPEED;
-        if (Math.abs(getLeftSpeed()) <= NO_SCALE_SPEED || Math.abs(getRightSpeed()) <= NO_SCALE_SPEED
-                || getLeftSpeed() == getRightSpeed()) {
+        double leftFactor = leftGearbox.getSpeedFactor();
+        double rightFactor = rightGearbox.getSpeedFactor();
+        double leftSpeed = sensors.getLeftVelocity() / maxVelocity;
+        double rightSpeed = sensors.getRightVelocity() / maxVelocity;
+        double leftStrength = leftSpeed / (wantedLeftSpeed * leftFactor);
+        double rightStrength = rightSpeed / (wantedRightSpeed * rightFactor);
+        if (Math.abs(leftSpeed) <= NO_SCALE_SPEED || Math.abs(rightSpeed) <= NO_SCALE_SPEED
+                || !(leftStrength > 0) || !(rightStrength > 0)
+                || Double.isInfinite(leftStrength) || Double.isInfinite(rightStrength)) {
             setLeftSpeedFactor(1);
             setRightSpeedFactor(1);
-        } else if (getLeftSpeed() > getRightSpeed()) {
-            setLeftSpeedFactor(getRightSpeed() / getLeftSpeed() * wantedLeftSpeed / wantedRightSpeed);
+            return;
+        }
+        double ratio = leftFactor / rightFactor;
+        ratio += Vars.Gearbox.FACTOR_GAIN * (rightStrength / leftStrength - ratio);
+        if (ratio < 1) {
+            setLeftSpeedFactor(ratio);
             setRightSpeedFactor(1);
         } else {
-            setRightSpeedFactor(getLeftSpeed() / getRightSpeed() * wantedRightSpeed / wantedLeftSpeed);
+            setRightSpeedFactor(1 / ratio);
             setLeftSpeedFactor(1);
         }
     }
 
+    /**
+     * Read both encoders once for this cycle.
+     *
+     * @return The snapshot of this drivetrain, refilled with the new readings
+     */
+    public SensorSnapshot readSensors() {
+        sensors.read(leftGearbox, rightGearbox);
+        return sensors;
+    }
+
+    /**
+     * @return The readings of the last readSensors()
+     */
+    public SensorSnapshot getSensors() {
+        return sensors;
+    }
+
+    /**
+     * Read the speed of the left side from its encoder. The snapshot of this
+     * drivetrain is left alone, so this is safe to call from any thread.
+     *
+     * @return The speed of the left side, as MonitoredGearbox.getVelocity()
+     */
     public double getLeftSpeed() {
         return leftGearbox.getVelocity();
     }
 
+    /**
+     * Read the speed of the right side from its encoder, as getLeftSpeed()
+     * does for the left one.
+     *
+     * @return The speed of the right side, as MonitoredGearbox.getVelocity()
+     */
     public double getRightSpeed() {
         return rightGearbox.getVelocity();
     }
+
+    public MonitoredGearbox getLeftGearbox() {
+        return leftGearbox;
+    }
+
+    public MonitoredGearbox getRightGearbox() {
+        return rightGearbox;
+    }
 }
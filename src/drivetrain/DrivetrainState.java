@@ -0,0 +1,133 @@
+package drivetrain;
+
+import edu.wpi.first.wpilibj.Encoder;
+
+/**
+ * The state of a Drivetrain at one point in time, kept in two flat primitive
+ * arrays so capturing, restoring and copying it is a handful of array writes.
+ * A search can run a simulation to some time, capture the state once, then
+ * restore it before trying each alternative.
+ *
+ * For each side, the state holds the speed factor, whether the gearbox is
+ * enabled, the output of each controller, and the count, period, rate and
+ * distance per pulse of the encoder. The index latches and velocity loop of a
+ * side are not part of the state, and neither are the pulses in the rate
+ * window: in the window modes the captured rate is assigned on restore, and
+ * holds until the pulses counted after the restore fill a new window.
+ *
+ * Disabled controllers cannot be enabled again, so a state with an enabled
+ * gearbox cannot be restored once that gearbox was disabled.
+ */
+public class DrivetrainState {
+
+    // values of a side: speed factor, three outputs, period, rate, distance
+    // per pulse
+    private static final int FACTOR = 0;
+    private static final int PERIOD = 4;
+    private static final int RATE = 5;
+    private static final int DISTANCE_PER_PULSE = 6;
+    private static final int VALUES = 7;
+    // counts of a side: encoder ticks, 1 if the gearbox is enabled
+    private static final int TICKS = 0;
+    private static final int ENABLED = 1;
+    private static final int COUNTS = 2;
+
+    private final double[] values = new double[2 * VALUES];
+    private final long[] counts = new long[2 * COUNTS];
+    private final Encoder.Snapshot encoder = new Encoder.Snapshot();
+    private boolean captured;
+
+    /**
+     * Capture the state of a drivetrain.
+     *
+     * @param drivetrain the drivetrain to capture
+     * @return this state
+     */
+    public DrivetrainState capture(Drivetrain drivetrain) {
+        capture(drivetrain.getLeftGearbox(), 0);
+        capture(drivetrain.getRightGearbox(), 1);
+        captured = true;
+        return this;
+    }
+
+    private void capture(MonitoredGearbox gearbox, int side) {
+        int v = side * VALUES;
+        int c = side * COUNTS;
+        gearbox.saveState(values, v + FACTOR);
+        gearbox.getEncoder().getSnapshot(encoder);
+        values[v + PERIOD] = encoder.period;
+        values[v + RATE] = encoder.rate;
+        values[v + DISTANCE_PER_PULSE] = encoder.distancePerPulse;
+        counts[c + TICKS] = encoder.count;
+        counts[c + ENABLED] = gearbox.isEnabled() ? 1 : 0;
+    }
+
+    /**
+     * Put a drivetrain back in the captured state.
+     *
+     * @param drivetrain the drivetrain to restore
+     * @throws IllegalStateException if no state was captured, or a gearbox
+     * enabled in the state was disabled since
+     */
+    public void restore(Drivetrain drivetrain) {
+        if (!captured) {
+            throw new IllegalStateException("No state was captured");
+        }
+        if (counts[ENABLED] != 0 && !drivetrain.getLeftGearbox().isEnabled()
+                || counts[COUNTS + ENABLED] != 0 && !drivetrain.getRightGearbox().isEnabled()) {
+            throw new IllegalStateException("A gearbox was disabled since the state was captured");
+        }
+        restore(drivetrain.getLeftGearbox(), 0);
+        restore(drivetrain.getRightGearbox(), 1);
+    }
+
+    private void restore(MonitoredGearbox gearbox, int side) {
+        int v = side * VALUES;
+        int c = side * COUNTS;
+        gearbox.restoreState(values, v + FACTOR, counts[c + ENABLED] != 0);
+        Encoder target = gearbox.getEncoder();
+        target.setDistancePerPulse(values[v + DISTANCE_PER_PULSE]);
+        target.setTicks(counts[c + TICKS]);
+        if (target.getRateMode() == Encoder.RateMode.kPeriod) {
+            target.setPeriod(values[v + PERIOD]);
+        } else {
+            // setTicks() emptied the window, so assign the rate it had
+            target.setRate(values[v + RATE]);
+        }
+    }
+
+    /**
+     * Copy another state into this one.
+     *
+     * @param other the state to copy
+     * @return this state
+     */
+    public DrivetrainState copyFrom(DrivetrainState other) {
+        System.arraycopy(other.values, 0, values, 0, values.length);
+        System.arraycopy(other.counts, 0, counts, 0, counts.length);
+        captured = other.captured;
+        return this;
+    }
+
+    public double getLeftSpeedFactor() {
+        return values[FACTOR];
+    }
+
+    public double getRightSpeedFactor() {
+        return values[VALUES + FACTOR];
+    }
+
+    /**
+     * @return The raw count of the left encoder
+     */
+    public long getLeftTicks() {
+        return counts[TICKS];
+    }
+
+    /**
+     * @return The raw count of the right encoder
+     */
+    public long getRightTicks() {
+        return counts[COUNTS + TICKS];
+    }
+}
@@ -0,0 +1,258 @@
+package drivetrain;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous event log for the control loop. Recording an event only copies
+ * a timestamp, two string references and a value into a preallocated ring
+ * buffer; a background thread formats the events and hands them to a
+ * {@link Sink}. Recording never blocks and never allocates: when the buffer
+ * is full the event is dropped and counted instead.
+ *
+ * Any number of threads may record events.
+ */
+public class EventLog {
+
+    /**
+     * Receives the events on the log thread.
+     */
+    public interface Sink {
+
+        /**
+         * Write an event.
+         *
+         * @param timeNanos the System.nanoTime() at which the event was recorded
+         * @param source the name of whatever recorded the event
+         * @param message what happened
+         * @param value the value attached to the event
+         */
+        void write(long timeNanos, String source, String message, double value);
+
+        /**
+         * Called after a batch of events was written.
+         */
+        void flush();
+    }
+
+    /**
+     * Writes events as "source message value" lines.
+     */
+    public static class PrintStreamSink implements Sink {
+
+        private final PrintStream out;
+        private final StringBuilder line = new StringBuilder();
+
+        public PrintStreamSink(PrintStream out) {
+            this.out = out;
+        }
+
+        public void write(long timeNanos, String source, String message, double value) {
+            line.setLength(0);
+            line.append(source).append(message).append(value);
+            out.println(line);
+        }
+
+        public void flush() {
+            out.flush();
+        }
+    }
+
+    /**
+     * The default number of events the buffer can hold.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+    private static final long IDLE_NANOS = 1000000;
+    private static EventLog defaultLog;
+
+    private final int mask;
+    private final long[] times;
+    private final String[] sources;
+    private final String[] messages;
+    private final double[] values;
+    private final AtomicLongArray published;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long flushed;
+    private final Sink sink;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * Create a log and start its thread.
+     *
+     * @param sink where the events are written
+     * @param capacity the number of events the buffer holds, rounded up to a
+     * power of two
+     */
+    public EventLog(Sink sink, int capacity) {
+        if (sink == null) {
+            throw new NullPointerException("Given sink was null");
+        }
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.times = new long[size];
+        this.sources = new String[size];
+        this.messages = new String[size];
+        this.values = new double[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, i - size);
+        }
+        this.sink = sink;
+        this.thread = new Thread(new Runnable() {
+            public void run() {
+                drainLoop();
+            }
+        }, "EventLog");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return The shared log, by default writing to standard output. It is
+     * created and its thread started on first use.
+     */
+    public static synchronized EventLog getDefault() {
+        if (defaultLog == null) {
+            defaultLog = new EventLog(new PrintStreamSink(System.out), DEFAULT_CAPACITY);
+        }
+        return defaultLog;
+    }
+
+    /**
+     * Replace the shared log used by everything not given a log of its own.
+     * The previous one is not closed.
+     *
+     * @param log the new shared log
+     */
+    public static synchronized void setDefault(EventLog log) {
+        if (log == null) {
+            throw new NullPointerException("Given event log was null");
+        }
+        defaultLog = log;
+    }
+
+    /**
+     * Record an event. The strings should be constants or long lived, since
+     * they are only formatted later on the log thread.
+     *
+     * @param source the name of whatever records the event
+     * @param message what happened
+     * @param value the value attached to the event
+     * @return false if the buffer was full and the event was dropped
+     */
+    public boolean record(String source, String message, double value) {
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail.get() > mask) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+        int index = (int) sequence & mask;
+        times[index] = System.nanoTime();
+        sources[index] = source;
+        messages[index] = message;
+        values[index] = value;
+        published.lazySet(index, sequence);
+        return true;
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+        }
+        drain();
+    }
+
+    private int drain() {
+        int count = 0;
+        long sequence = tail.get();
+        while (true) {
+            int index = (int) sequence & mask;
+            if (published.get(index) != sequence) {
+                break;
+            }
+            long time = times[index];
+            String source = sources[index];
+            String message = messages[index];
+            double value = values[index];
+            sources[index] = null;
+            messages[index] = null;
+            try {
+                sink.write(time, source, message, value);
+            } catch (RuntimeException ex) {
+                // a broken sink must not stop the log
+            }
+            sequence++;
+            tail.lazySet(sequence);
+            count++;
+        }
+        if (count > 0) {
+            try {
+                sink.flush();
+            } catch (RuntimeException ex) {
+                // a broken sink must not stop the log
+            }
+        }
+        flushed = sequence;
+        return count;
+    }
+
+    /**
+     * Wait until every event recorded before this call was written and the
+     * sink was flushed.
+     */
+    public void flush() {
+        long target = head.get();
+        while (flushed < target && thread.isAlive()) {
+            LockSupport.unpark(thread);
+            LockSupport.parkNanos(IDLE_NANOS / 10);
+        }
+    }
+
+    /**
+     * Write the remaining events and stop the log thread.
+     */
+    public void close() {
+        flush();
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return The number of events dropped because the buffer was full
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * @return The number of events recorded and not yet written
+     */
+    public int getPending() {
+        return (int) (head.get() - tail.get());
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+}
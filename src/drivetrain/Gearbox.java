@@ -1,6 +1,7 @@
 package drivetrain;
 
 import edu.wpi.first.wpilibj.SpeedController;
+import edu.wpi.first.wpilibj.SyncGroup;
 import edu.wpi.first.wpilibj.Talon;
 import edu.wpi.first.wpilibj.templates.Utils;
 
@@ -13,8 +14,19 @@ public class Gearbox implements SpeedController {
     
     private double speedFactor = 1;
     
+    private EventLog eventLog;
+    
     private SpeedController frontController, rearController, midController;
     
+    private SyncGroup syncGroups;
+    
+    private double writeEpsilon = 0;
+    private double lastSpeed;
+    private byte lastSyncGroup;
+    private boolean hasLastSpeed;
+    private boolean enabled = true;
+    private long sentWrites, suppressedWrites;
+    
     /**
      * Create new Gearbox with Jaguars in the written ports.
      * @param frontChannel channel of the first SpeedController
@@ -61,45 +73,200 @@ public class Gearbox implements SpeedController {
         return frontController.get();
     }
     /**
-     * @deprecated Byte primitive type is not used
-     * @param speed
-     * @param b 
+     * Make the controllers stage the speeds set with a sync group in the given
+     * groups, removing them from the groups they were in before.
+     * @param syncGroups the groups, or null to set every speed immediately
+     */
+    public void setSyncGroups(SyncGroup syncGroups) {
+        if (this.syncGroups != null) {
+            this.syncGroups.remove(frontController);
+            this.syncGroups.remove(rearController);
+            this.syncGroups.remove(midController);
+        }
+        this.syncGroups = syncGroups;
+        if (syncGroups != null) {
+            syncGroups.add(frontController);
+            syncGroups.add(rearController);
+            syncGroups.add(midController);
+        }
+    }
+    
+    public SyncGroup getSyncGroups() {
+        return syncGroups;
+    }
+    
+    /**
+     * Stage the speed on all the controllers in the given sync group. The
+     * speed takes effect on the next update of the groups set with
+     * setSyncGroups().
+     * @param speed speed in range of [-1.0,1.0]
+     * @param syncGroup the sync group, or 0 to set the speed immediately
      */
-    public void set(double speed, byte b) {
-       set(speed); 
+    public void set(double speed, byte syncGroup) {
+        speed = Utils.limitSpeed(speed);
+        if (isUnchanged(speed, syncGroup)) {
+            return;
+        }
+        frontController.set(speed, syncGroup);
+        rearController.set(speed, syncGroup);
+        if (hasThreeControllers()) {
+            midController.set(speed, syncGroup);
+        }
     }
 
     public void set(double speed) {
         speed = Utils.limitSpeed(speed);
+        if (isUnchanged(speed, (byte) 0)) {
+            return;
+        }
         frontController.set(speed);
         rearController.set(speed);
         if (hasThreeControllers()) {
             midController.set(speed);
         }
     }
+    
+    /**
+     * Check if the speed is within the write epsilon of the last speed sent
+     * to the controllers in the same sync group, and remember it if it is not.
+     * Stopping and full speed are always written, and so is any speed once
+     * the front controller no longer has the last speed, because it was
+     * written to directly.
+     */
+    private boolean isUnchanged(double speed, byte syncGroup) {
+        int controllers = hasThreeControllers() ? 3 : 2;
+        if (hasLastSpeed && syncGroup == lastSyncGroup
+                && speed != 0 && Math.abs(speed) != 1
+                && (syncGroup != 0 || frontController.get() == lastSpeed)
+                && Math.abs(speed - lastSpeed) <= writeEpsilon) {
+            suppressedWrites += controllers;
+            return true;
+        }
+        lastSpeed = speed;
+        lastSyncGroup = syncGroup;
+        hasLastSpeed = true;
+        sentWrites += controllers;
+        return false;
+    }
+    
+    /**
+     * Set how much the speed has to change before it is sent again to the
+     * controllers. With the default of 0 only identical speeds are skipped.
+     * @param writeEpsilon the smallest change that is written
+     */
+    public void setWriteEpsilon(double writeEpsilon) {
+        if (writeEpsilon < 0) {
+            throw new IllegalArgumentException("Write epsilon must not be negative");
+        }
+        this.writeEpsilon = writeEpsilon;
+    }
+    
+    public double getWriteEpsilon() {
+        return writeEpsilon;
+    }
+    
+    /**
+     * @return The number of controller writes sent
+     */
+    public long getSentWrites() {
+        return sentWrites;
+    }
+    
+    /**
+     * @return The number of controller writes skipped because the speed did
+     * not change
+     */
+    public long getSuppressedWrites() {
+        return suppressedWrites;
+    }
 
+    /**
+     * Disable the controllers. Disabled controllers stay stopped, so the
+     * gearbox is disabled for good.
+     */
     public void disable() {
+        hasLastSpeed = false;
         frontController.disable();
         rearController.disable();
         if (hasThreeControllers()) {
             midController.disable();
         }
-        
+        enabled = false;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Copy the speed factor and the outputs of the controllers into a state
+     * buffer, at the given offset. A missing middle controller has output 0.
+     */
+    void saveState(double[] state, int offset) {
+        state[offset] = speedFactor;
+        state[offset + 1] = frontController.get();
+        state[offset + 2] = rearController.get();
+        state[offset + 3] = hasThreeControllers() ? midController.get() : 0;
+    }
+
+    /**
+     * Put back the speed factor and outputs saved by saveState(), and disable
+     * the gearbox if it was disabled. A disabled gearbox cannot be enabled
+     * again, so the caller checks isEnabled() first.
+     */
+    void restoreState(double[] state, int offset, boolean enabled) {
+        speedFactor = state[offset];
+        frontController.set(state[offset + 1]);
+        rearController.set(state[offset + 2]);
+        if (hasThreeControllers()) {
+            midController.set(state[offset + 3]);
+        }
+        hasLastSpeed = false;
+        if (!enabled && this.enabled) {
+            disable();
+        }
     }
 
     public void pidWrite(double speed) {
         set(speed);
     }
     
+    /**
+     * Set the factor the speed is scaled by. Only changes of the factor are
+     * recorded to the event log.
+     * @param factor the factor, limited to [-1.0,1.0]
+     */
     public void setSpeedFactor(double factor) {
         if (factor > 1) factor = 1;
         else if (factor < -1) factor = -1;
+        if (factor == speedFactor) {
+            return;
+        }
         this.speedFactor = factor;
-        System.out.println(name + " factor is:" + factor);
+        getEventLog().record(name, " factor is:", factor);
     }
     
     public double getSpeedFactor() {
         return speedFactor;
     }
+    
+    /**
+     * Set the log speed factor changes are recorded to.
+     * @param eventLog the log, by default {@link EventLog#getDefault()}
+     */
+    public void setEventLog(EventLog eventLog) {
+        if (eventLog == null) {
+            throw new NullPointerException("Given event log was null");
+        }
+        this.eventLog = eventLog;
+    }
+    
+    /**
+     * @return The log of this gearbox, the shared one unless another was set
+     */
+    public EventLog getEventLog() {
+        EventLog log = eventLog;
+        return log != null ? log : EventLog.getDefault();
+    }
 
 }
\ No newline at end of file
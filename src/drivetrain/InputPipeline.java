@@ -0,0 +1,157 @@
+package drivetrain;
+
+import edu.wpi.first.wpilibj.templates.Utils;
+
+/**
+ * Shapes a joystick value before it is used to drive. The stages are added
+ * once, then every call to {@link #apply(double)} passes the value through
+ * them in order. Stages are stored as opcodes and parameters in primitive
+ * arrays and run by a single switch, so applying the pipeline does not
+ * allocate or call through interfaces.
+ *
+ * The slew stages remember the last value, so a pipeline should shape a
+ * single input and be applied from a single thread.
+ */
+public class InputPipeline {
+
+    private static final int DEADBAND = 0;
+    private static final int CURVE = 1;
+    private static final int SLEW = 2;
+    private static final int LIMIT = 3;
+    private static final int PARAMS = 2;
+
+    private int size;
+    private int[] opcodes = new int[4];
+    private double[] params = new double[4 * PARAMS];
+    private double[] state = new double[4];
+
+    private int add(int opcode, double first, double second) {
+        if (size == opcodes.length) {
+            int[] newOpcodes = new int[size * 2];
+            System.arraycopy(opcodes, 0, newOpcodes, 0, size);
+            opcodes = newOpcodes;
+            double[] newParams = new double[size * 2 * PARAMS];
+            System.arraycopy(params, 0, newParams, 0, size * PARAMS);
+            params = newParams;
+            double[] newState = new double[size * 2];
+            System.arraycopy(state, 0, newState, 0, size);
+            state = newState;
+        }
+        opcodes[size] = opcode;
+        params[size * PARAMS] = first;
+        params[size * PARAMS + 1] = second;
+        size++;
+        return size - 1;
+    }
+
+    /**
+     * Zero values closer to 0 than the width, and stretch the rest so the
+     * output still goes from 0 to 1.
+     *
+     * @param width the width of the deadband, from 0 to 1
+     * @return this pipeline
+     */
+    public InputPipeline deadband(double width) {
+        if (width < 0 || width >= 1) {
+            throw new IllegalArgumentException("Deadband must be between 0 and 1");
+        }
+        add(DEADBAND, width, 1 / (1 - width));
+        return this;
+    }
+
+    /**
+     * Raise the magnitude of the value to a power, keeping its sign, for
+     * finer control at low speeds.
+     *
+     * @param exponent the power, 1 for no change
+     * @return this pipeline
+     */
+    public InputPipeline curve(double exponent) {
+        if (exponent <= 0) {
+            throw new IllegalArgumentException("Exponent must be positive");
+        }
+        add(CURVE, exponent, 0);
+        return this;
+    }
+
+    /**
+     * Limit how much the value may change from one call to the next.
+     *
+     * @param maxChange the largest change per call
+     * @return this pipeline
+     */
+    public InputPipeline slew(double maxChange) {
+        if (maxChange <= 0) {
+            throw new IllegalArgumentException("Slew rate must be positive");
+        }
+        add(SLEW, maxChange, 0);
+        return this;
+    }
+
+    /**
+     * Clamp the value with Utils.limit.
+     *
+     * @param min the lowest value
+     * @param max the highest value
+     * @return this pipeline
+     */
+    public InputPipeline limit(double min, double max) {
+        add(LIMIT, min, max);
+        return this;
+    }
+
+    /**
+     * Pass a value through every stage.
+     *
+     * @param value the input
+     * @return The shaped value
+     */
+    public double apply(double value) {
+        for (int i = 0; i < size; i++) {
+            double first = params[i * PARAMS];
+            switch (opcodes[i]) {
+                case DEADBAND:
+                    if (Math.abs(value) <= first) {
+                        value = 0;
+                    } else {
+                        double magnitude = (Math.abs(value) - first) * params[i * PARAMS + 1];
+                        value = value > 0 ? magnitude : -magnitude;
+                    }
+                    break;
+                case CURVE:
+                    double magnitude = Math.pow(Math.abs(value), first);
+                    value = value < 0 ? -magnitude : magnitude;
+                    break;
+                case SLEW:
+                    double last = state[i];
+                    if (value > last + first) {
+                        value = last + first;
+                    } else if (value < last - first) {
+                        value = last - first;
+                    }
+                    state[i] = value;
+                    break;
+                case LIMIT:
+                    value = Utils.limit(value, first, params[i * PARAMS + 1]);
+                    break;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Make the slew stages start again from 0.
+     */
+    public void reset() {
+        for (int i = 0; i < size; i++) {
+            state[i] = 0;
+        }
+    }
+
+    /**
+     * @return The number of stages
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -1,7 +1,11 @@
 package drivetrain;
 
 import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.PIDController;
+import edu.wpi.first.wpilibj.PIDOutput;
+import edu.wpi.first.wpilibj.PIDSource;
 import edu.wpi.first.wpilibj.SpeedController;
+import edu.wpi.first.wpilibj.templates.Utils;
 import edu.wpi.first.wpilibj.templates.Vars;
 
 /**
@@ -11,6 +15,9 @@ import edu.wpi.first.wpilibj.templates.Vars;
 public class MonitoredGearbox extends Gearbox {
     private double radius;
     private Encoder encoder;
+    private PIDController velocityController;
+    private double maxVelocity;
+    private boolean encoderInverted;
 
     public MonitoredGearbox(int frontChannel, int rearChannel, Encoder encoder) {
         super(frontChannel, rearChannel);
@@ -32,6 +39,100 @@ public class MonitoredGearbox extends Gearbox {
         setEncoder(encoder);
     }
 
+    /**
+     * Set the speed, scaled by the speed factor. In velocity mode the speed
+     * becomes the target velocity, as a fraction of the maximum velocity,
+     * which update() drives the controllers toward.
+     * @param speed speed in range of [-1.0,1.0]
+     */
+    public void set(double speed) {
+        if (velocityController != null) {
+            setTargetVelocity(speed);
+        } else {
+            super.set(speed * getSpeedFactor());
+        }
+    }
+
+    public void set(double speed, byte syncGroup) {
+        if (velocityController != null) {
+            setTargetVelocity(speed);
+        } else {
+            super.set(speed * getSpeedFactor(), syncGroup);
+        }
+    }
+
+    private void setTargetVelocity(double speed) {
+        velocityController.setSetpoint(Utils.limitSpeed(speed) * getSpeedFactor() * maxVelocity);
+    }
+
+    /**
+     * Drive the controllers toward a target velocity instead of setting their
+     * output directly. The output is the target divided by the maximum
+     * velocity, corrected by a PID loop on the encoder rate. The loop runs
+     * when update() is called, or when the controller returned by
+     * getVelocityController() is stepped by a PIDExecutor.
+     * @param maxVelocity the velocity at full output, in encoder units per second
+     * @param p Proportional coefficient
+     * @param i Integral coefficient
+     * @param d Differential coefficient
+     * @param period the time between two updates, in seconds
+     * @param encoderInverted true if positive outputs make the encoder count down
+     */
+    public void enableVelocityControl(double maxVelocity, double p, double i, double d,
+            double period, boolean encoderInverted) {
+        if (maxVelocity <= 0) {
+            throw new IllegalArgumentException("Maximum velocity must be positive");
+        }
+        this.maxVelocity = maxVelocity;
+        this.encoderInverted = encoderInverted;
+        velocityController = new PIDController(p, i, d, 1 / maxVelocity, new PIDSource() {
+            public double pidGet() {
+                double velocity = encoder.getRate();
+                return MonitoredGearbox.this.encoderInverted ? -velocity : velocity;
+            }
+        }, new PIDOutput() {
+            public void pidWrite(double output) {
+                MonitoredGearbox.super.set(output);
+            }
+        }, period);
+        velocityController.enable();
+    }
+
+    /**
+     * Go back to setting the output of the controllers directly. The velocity
+     * loop is no longer stepped, so the output is zeroed here.
+     */
+    public void disableVelocityControl() {
+        if (velocityController != null) {
+            velocityController.disable();
+            velocityController = null;
+            super.set(0);
+        }
+    }
+
+    public boolean isVelocityControlEnabled() {
+        return velocityController != null;
+    }
+
+    /**
+     * @return The controller of the velocity loop, or null when not in
+     * velocity mode
+     */
+    public PIDController getVelocityController() {
+        return velocityController;
+    }
+
+    /**
+     * Run one cycle of the velocity loop. Does nothing when not in velocity
+     * mode.
+     */
+    public void update() {
+        PIDController controller = velocityController;
+        if (controller != null) {
+            controller.calculate();
+        }
+    }
+
     public double getDistance() {
         return encoder.getDistance();
     }
@@ -73,10 +174,27 @@ public class MonitoredGearbox extends Gearbox {
      * @param radius The radius of the Wheels in centimeters
      */
     public void setWheelRadius(double radius) {
+        setWheelRadius(radius, Vars.TICKS);
+    }
+
+    /**
+     * 
+     * @param radius The radius of the Wheels in centimeters
+     * @param ticks The number of encoder ticks per wheel revolution
+     */
+    public void setWheelRadius(double radius, int ticks) {
         this.radius = radius;
-        encoder.setDistancePerPulse(2 * Math.PI * radius / Vars.TICKS);
+        encoder.setDistancePerPulse(2 * Math.PI * radius / ticks);
     }
     
+    /**
+     * 
+     * @return The radius of the Wheels in centimeters
+     */
+    public double getWheelRadius() {
+        return radius;
+    }
+
     public Encoder getEncoder() {
         return encoder;
     }
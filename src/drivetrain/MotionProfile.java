@@ -0,0 +1,206 @@
+package drivetrain;
+
+/**
+ * The position, velocity and acceleration of a distance move, generated once
+ * at a fixed timestep into primitive arrays. Following the profile then only
+ * reads the sample of the current cycle by its index, instead of solving the
+ * kinematics again every cycle.
+ *
+ * A profile is not changed after it is generated, so any number of threads
+ * may sample it.
+ */
+public class MotionProfile {
+
+    private final double dt;
+    private final double[] position;
+    private final double[] velocity;
+    private final double[] acceleration;
+
+    /**
+     * Wrap already generated samples. The arrays are used as they are, not
+     * copied.
+     *
+     * @param dt the time between two samples, in seconds
+     * @param position the position of every sample
+     * @param velocity the velocity of every sample
+     * @param acceleration the acceleration of every sample
+     */
+    MotionProfile(double dt, double[] position, double[] velocity, double[] acceleration) {
+        if (dt <= 0) {
+            throw new IllegalArgumentException("Timestep must be positive");
+        }
+        if (position.length == 0 || velocity.length != position.length
+                || acceleration.length != position.length) {
+            throw new IllegalArgumentException("Samples must be non empty and of the same length");
+        }
+        this.dt = dt;
+        this.position = position;
+        this.velocity = velocity;
+        this.acceleration = acceleration;
+    }
+
+    /**
+     * Generate a trapezoidal profile: accelerate at the maximum acceleration,
+     * cruise at the maximum velocity, then decelerate to a stop. Short moves
+     * never reach the maximum velocity and get a triangular profile.
+     *
+     * @param distance the distance to move, negative to move backwards
+     * @param maxVelocity the highest speed, in distance per second
+     * @param maxAcceleration the highest acceleration, in distance per second
+     * squared
+     * @param dt the time between two samples, in seconds
+     * @return The profile
+     */
+    public static MotionProfile trapezoidal(double distance, double maxVelocity,
+            double maxAcceleration, double dt) {
+        checkConstraints(maxVelocity, maxAcceleration, dt);
+        double sign = distance < 0 ? -1 : 1;
+        double length = Math.abs(distance);
+        double accelerationTime = maxVelocity / maxAcceleration;
+        double peakVelocity = maxVelocity;
+        if (maxAcceleration * accelerationTime * accelerationTime > length) {
+            peakVelocity = Math.sqrt(length * maxAcceleration);
+            accelerationTime = peakVelocity / maxAcceleration;
+        }
+        double accelerationDistance = peakVelocity * accelerationTime / 2;
+        double cruiseTime = (length - 2 * accelerationDistance) / peakVelocity;
+        if (Double.isNaN(cruiseTime)) {
+            cruiseTime = 0;
+        }
+        double decelerationStart = accelerationTime + cruiseTime;
+        double duration = decelerationStart + accelerationTime;
+
+        int samples = (int) Math.ceil(duration / dt - 1e-9) + 1;
+        double[] position = new double[samples];
+        double[] velocity = new double[samples];
+        double[] acceleration = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            double t = Math.min(i * dt, duration);
+            double p, v, a;
+            if (t < accelerationTime) {
+                a = maxAcceleration;
+                v = maxAcceleration * t;
+                p = v * t / 2;
+            } else if (t < decelerationStart) {
+                a = 0;
+                v = peakVelocity;
+                p = accelerationDistance + peakVelocity * (t - accelerationTime);
+            } else {
+                double left = duration - t;
+                a = left > 0 ? -maxAcceleration : 0;
+                v = maxAcceleration * left;
+                p = length - v * left / 2;
+            }
+            position[i] = sign * p;
+            velocity[i] = sign * v;
+            acceleration[i] = sign * a;
+        }
+        position[samples - 1] = distance;
+        return new MotionProfile(dt, position, velocity, acceleration);
+    }
+
+    /**
+     * Generate an S-curve profile: the trapezoidal profile passed through a
+     * moving average, so the acceleration ramps over the given time instead
+     * of jumping. The move takes that much longer than the trapezoidal one.
+     *
+     * @param distance the distance to move, negative to move backwards
+     * @param maxVelocity the highest speed, in distance per second
+     * @param maxAcceleration the highest acceleration, in distance per second
+     * squared
+     * @param jerkTime the time the acceleration takes to ramp, in seconds
+     * @param dt the time between two samples, in seconds
+     * @return The profile
+     */
+    public static MotionProfile sCurve(double distance, double maxVelocity,
+            double maxAcceleration, double jerkTime, double dt) {
+        MotionProfile trapezoid = trapezoidal(distance, maxVelocity, maxAcceleration, dt);
+        if (jerkTime < 0) {
+            throw new IllegalArgumentException("Jerk time must not be negative");
+        }
+        int window = Math.max(1, (int) Math.round(jerkTime / dt));
+        int samples = trapezoid.getLength() + window - 1;
+        return new MotionProfile(dt,
+                movingAverage(trapezoid.position, window, samples),
+                movingAverage(trapezoid.velocity, window, samples),
+                movingAverage(trapezoid.acceleration, window, samples));
+    }
+
+    /**
+     * Average every sample with the ones before it. Samples before the start
+     * are 0 and samples after the end repeat the last one.
+     */
+    private static double[] movingAverage(double[] values, int window, int samples) {
+        double[] result = new double[samples];
+        double last = values[values.length - 1];
+        double sum = 0;
+        for (int i = 0; i < samples; i++) {
+            sum += i < values.length ? values[i] : last;
+            int leaving = i - window;
+            if (leaving >= 0) {
+                sum -= leaving < values.length ? values[leaving] : last;
+            }
+            result[i] = sum / window;
+        }
+        result[samples - 1] = last;
+        return result;
+    }
+
+    private static void checkConstraints(double maxVelocity, double maxAcceleration, double dt) {
+        if (maxVelocity <= 0 || maxAcceleration <= 0 || dt <= 0) {
+            throw new IllegalArgumentException("Constraints and timestep must be positive");
+        }
+    }
+
+    /**
+     * @param time the time since the start of the move, in seconds
+     * @return The index of the sample at that time, clamped to the profile
+     */
+    public int getIndex(double time) {
+        if (time <= 0) {
+            return 0;
+        }
+        int index = (int) (time / dt);
+        return index < position.length ? index : position.length - 1;
+    }
+
+    public double getPosition(int index) {
+        return position[index];
+    }
+
+    public double getVelocity(int index) {
+        return velocity[index];
+    }
+
+    public double getAcceleration(int index) {
+        return acceleration[index];
+    }
+
+    /**
+     * @return The number of samples
+     */
+    public int getLength() {
+        return position.length;
+    }
+
+    /**
+     * @return The time between two samples, in seconds
+     */
+    public double getTimestep() {
+        return dt;
+    }
+
+    /**
+     * @return The time of the last sample, in seconds
+     */
+    public double getDuration() {
+        return (position.length - 1) * dt;
+    }
+
+    /**
+     * @return The distance of the whole move
+     */
+    public double getDistance() {
+        return position[position.length - 1];
+    }
+}
@@ -0,0 +1,182 @@
+package drivetrain;
+
+import edu.wpi.first.wpilibj.Encoder;
+
+/**
+ * Tracks the position and heading of a differential drive from the distances
+ * driven by its two sides. Every update integrates the change since the last
+ * one along an arc, so the estimate is best when updating fast: besides being
+ * added to the main control loop, odometry can run on a loop of its own at a
+ * higher rate with {@link #start(double)}.
+ *
+ * The pose is kept in primitive fields and written by a single thread; readers
+ * on any thread get a consistent copy with {@link #getPose(Pose)}, retrying
+ * while an update is in progress.
+ */
+public class Odometry implements Runnable {
+
+    /**
+     * A position and heading. Reuse one instance per reader to avoid
+     * allocating every cycle.
+     */
+    public static class Pose {
+
+        /**
+         * Distance driven forward from the start, in centimeters
+         */
+        public double x;
+        /**
+         * Distance driven to the left of the start, in centimeters
+         */
+        public double y;
+        /**
+         * Counterclockwise rotation from the start, in radians
+         */
+        public double heading;
+    }
+
+    private final Drivetrain drivetrain;
+    private final double trackWidth;
+    private final Encoder.Snapshot left = new Encoder.Snapshot();
+    private final Encoder.Snapshot right = new Encoder.Snapshot();
+    private double lastLeft, lastRight;
+    private boolean started;
+
+    // the pose, guarded by the sequence: odd while an update is in progress
+    private volatile long sequence;
+    private volatile double x, y, heading;
+    private volatile long updates;
+
+    private volatile boolean resetRequested;
+    private volatile double resetX, resetY, resetHeading;
+    private ControlLoop loop;
+
+    /**
+     * @param drivetrain the drivetrain whose encoders are read
+     * @param trackWidth the distance between the left and right wheels, in
+     * the distance units of the encoders
+     */
+    public Odometry(Drivetrain drivetrain, double trackWidth) {
+        if (drivetrain == null) {
+            throw new NullPointerException("Given drivetrain was null");
+        }
+        if (trackWidth <= 0) {
+            throw new IllegalArgumentException("Track width must be positive");
+        }
+        this.drivetrain = drivetrain;
+        this.trackWidth = trackWidth;
+    }
+
+    /**
+     * Integrate the distances driven since the last update. Only one thread
+     * may call this.
+     */
+    public void run() {
+        drivetrain.getLeftGearbox().getEncoder().getSnapshot(left);
+        drivetrain.getRightGearbox().getEncoder().getSnapshot(right);
+        double leftDistance = left.getDistance();
+        double rightDistance = right.getDistance();
+        if (resetRequested) {
+            resetRequested = false;
+            write(resetX, resetY, resetHeading);
+        } else if (started) {
+            double leftDelta = leftDistance - lastLeft;
+            double rightDelta = rightDistance - lastRight;
+            double distance = (leftDelta + rightDelta) / 2;
+            double turn = (rightDelta - leftDelta) / trackWidth;
+            double direction = heading + turn / 2;
+            write(x + distance * Math.cos(direction),
+                    y + distance * Math.sin(direction),
+                    heading + turn);
+        }
+        lastLeft = leftDistance;
+        lastRight = rightDistance;
+        started = true;
+        updates++;
+    }
+
+    private void write(double x, double y, double heading) {
+        long current = sequence;
+        sequence = current + 1;
+        this.x = x;
+        this.y = y;
+        this.heading = heading;
+        sequence = current + 2;
+    }
+
+    /**
+     * Copy the pose, as it was after a single update, into the given pose.
+     *
+     * @param pose the pose to fill
+     * @return the given pose
+     */
+    public Pose getPose(Pose pose) {
+        long before;
+        do {
+            before = sequence;
+            pose.x = x;
+            pose.y = y;
+            pose.heading = heading;
+        } while ((before & 1) != 0 || sequence != before);
+        return pose;
+    }
+
+    /**
+     * Move the pose to the given one on the next update. The distances
+     * driven before that update are ignored.
+     *
+     * @param x the new x, in centimeters
+     * @param y the new y, in centimeters
+     * @param heading the new heading, in radians
+     */
+    public void reset(double x, double y, double heading) {
+        resetX = x;
+        resetY = y;
+        resetHeading = heading;
+        resetRequested = true;
+    }
+
+    /**
+     * Run the updates on a loop of their own.
+     *
+     * @param frequency the number of updates per second
+     */
+    public synchronized void start(double frequency) {
+        stop();
+        loop = new ControlLoop(frequency);
+        loop.add(this);
+        loop.start();
+    }
+
+    /**
+     * Stop the loop started by start(double).
+     */
+    public synchronized void stop() {
+        if (loop != null) {
+            loop.stop();
+            loop = null;
+        }
+    }
+
+    /**
+     * @return The loop started by start(double), or null
+     */
+    public synchronized ControlLoop getLoop() {
+        return loop;
+    }
+
+    /**
+     * @return The number of updates run
+     */
+    public long getUpdates() {
+        return updates;
+    }
+
+    public double getTrackWidth() {
+        return trackWidth;
+    }
+
+    public Drivetrain getDrivetrain() {
+        return drivetrain;
+    }
+}
@@ -0,0 +1,117 @@
+package drivetrain;
+
+/**
+ * Drives a Drivetrain straight along a MotionProfile. Every run moves to the
+ * next sample of the profile, so the follower has to run once per timestep of
+ * the profile, usually on a ControlLoop of the same period.
+ *
+ * The speed sent to both sides is the velocity of the sample as a fraction of
+ * the maximum velocity, corrected in proportion to how far the distance
+ * driven is behind the position of the sample.
+ */
+public class ProfileFollower implements Runnable {
+
+    private final Drivetrain drivetrain;
+    private final double maxVelocity;
+    private volatile MotionProfile profile;
+    private volatile double positionGain;
+    private volatile boolean restartRequested = true;
+
+    // the profile being followed, taken from profile on each restart
+    private MotionProfile following;
+    private int index;
+    private double startDistance;
+    private boolean finished;
+
+    /**
+     * @param drivetrain the drivetrain to drive
+     * @param profile the profile to follow
+     * @param maxVelocity the velocity at full speed, in the distance units of
+     * the profile per second
+     */
+    public ProfileFollower(Drivetrain drivetrain, MotionProfile profile, double maxVelocity) {
+        if (drivetrain == null) {
+            throw new NullPointerException("Given drivetrain was null");
+        }
+        if (profile == null) {
+            throw new NullPointerException("Given profile was null");
+        }
+        if (maxVelocity <= 0) {
+            throw new IllegalArgumentException("Maximum velocity must be positive");
+        }
+        this.drivetrain = drivetrain;
+        this.profile = profile;
+        this.maxVelocity = maxVelocity;
+    }
+
+    public void run() {
+        SensorSnapshot sensors = drivetrain.readSensors();
+        double driven = (sensors.getLeftDistance() + sensors.getRightDistance()) / 2;
+        if (restartRequested) {
+            restartRequested = false;
+            following = profile;
+            index = 0;
+            startDistance = driven;
+            finished = false;
+        }
+        if (finished) {
+            return;
+        }
+        double speed = following.getVelocity(index) / maxVelocity
+                + positionGain * (following.getPosition(index) - (driven - startDistance));
+        if (index == following.getLength() - 1) {
+            speed = 0;
+            finished = true;
+        } else {
+            index++;
+        }
+        drivetrain.setLeftSpeed(speed);
+        drivetrain.setRightSpeed(speed);
+        drivetrain.updateSyncGroup();
+    }
+
+    /**
+     * Follow the profile from its start on the next run, measuring the
+     * distance from where the drivetrain is then.
+     */
+    public void restart() {
+        restartRequested = true;
+    }
+
+    /**
+     * Follow another profile from its start on the next run. Until then the
+     * follower keeps to the profile it was following.
+     *
+     * @param profile the profile to follow
+     */
+    public void setProfile(MotionProfile profile) {
+        if (profile == null) {
+            throw new NullPointerException("Given profile was null");
+        }
+        this.profile = profile;
+        restart();
+    }
+
+    public MotionProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * @param positionGain the speed added per unit of distance behind the
+     * profile
+     */
+    public void setPositionGain(double positionGain) {
+        this.positionGain = positionGain;
+    }
+
+    public double getPositionGain() {
+        return positionGain;
+    }
+
+    /**
+     * @return true once the last sample was sent and the drivetrain stopped
+     */
+    public boolean isFinished() {
+        return finished && !restartRequested;
+    }
+}
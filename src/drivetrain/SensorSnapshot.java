@@ -0,0 +1,106 @@
+package drivetrain;
+
+import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.TimeSource;
+
+/**
+ * The encoder readings of both sides of a drivetrain, taken once per control
+ * cycle. Everything the cycle decides is based on the same readings, even if
+ * the encoders are counted by another thread meanwhile, and each encoder is
+ * read only once.
+ *
+ * A drivetrain keeps a single snapshot and refills it every cycle, so callers
+ * must copy the values they want to keep past the cycle. The time of the
+ * readings comes from the time source of the control loop, so a simulated
+ * cycle is stamped with simulated time.
+ */
+public class SensorSnapshot {
+
+    private final TimeSource timeSource;
+    private final Encoder.Snapshot left = new Encoder.Snapshot();
+    private final Encoder.Snapshot right = new Encoder.Snapshot();
+    private double leftDistance, rightDistance;
+    private double leftVelocity, rightVelocity;
+    private long timeNanos;
+    private long cycle;
+
+    /**
+     * Create a snapshot stamped with the wall clock.
+     */
+    public SensorSnapshot() {
+        this(TimeSource.SYSTEM);
+    }
+
+    /**
+     * Create a snapshot stamped with the given clock.
+     *
+     * @param timeSource the clock of the control loop
+     */
+    public SensorSnapshot(TimeSource timeSource) {
+        if (timeSource == null) {
+            throw new NullPointerException("Given time source was null");
+        }
+        this.timeSource = timeSource;
+    }
+
+    /**
+     * Read both encoders into this snapshot.
+     *
+     * @param leftGearbox the left side
+     * @param rightGearbox the right side
+     */
+    void read(MonitoredGearbox leftGearbox, MonitoredGearbox rightGearbox) {
+        leftGearbox.getEncoder().getSnapshot(left);
+        rightGearbox.getEncoder().getSnapshot(right);
+        leftDistance = left.getDistance();
+        rightDistance = right.getDistance();
+        leftVelocity = left.getRate();
+        rightVelocity = right.getRate();
+        timeNanos = timeSource.nanoTime();
+        cycle++;
+    }
+
+    public double getLeftDistance() {
+        return leftDistance;
+    }
+
+    public double getRightDistance() {
+        return rightDistance;
+    }
+
+    /**
+     * @return The speed of the left side, as MonitoredGearbox.getVelocity()
+     */
+    public double getLeftVelocity() {
+        return leftVelocity;
+    }
+
+    /**
+     * @return The speed of the right side, as MonitoredGearbox.getVelocity()
+     */
+    public double getRightVelocity() {
+        return rightVelocity;
+    }
+
+    public long getLeftCount() {
+        return left.count;
+    }
+
+    public long getRightCount() {
+        return right.count;
+    }
+
+    /**
+     * @return The time of the time source at which the encoders were read
+     */
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    /**
+     * @return The number of times the snapshot was filled
+     */
+    public long getCycle() {
+        return cycle;
+    }
+}
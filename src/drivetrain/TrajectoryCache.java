@@ -0,0 +1,359 @@
+package drivetrain;
+
+import edu.wpi.first.wpilibj.templates.Vars;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps generated trajectories so the same trajectory is only generated once.
+ * Trajectories are looked up by their waypoints and constraints, together with
+ * the wheel radius and encoder ticks they were generated for, and the least
+ * recently used ones are dropped when the cache is full.
+ *
+ * The cache can be saved to a binary file and loaded on the next start, which
+ * is much faster than generating the trajectories again. A file is replaced
+ * as a whole when saved, and a corrupt file loads nothing, so the worst a bad
+ * file costs is generating the trajectories again.
+ */
+public class TrajectoryCache {
+
+    /**
+     * Generates the trajectory of given waypoints and constraints.
+     */
+    public interface Generator {
+
+        /**
+         * @param waypoints the x and y of every waypoint, one after the other
+         * @param maxVelocity the highest speed, in distance per second
+         * @param maxAcceleration the highest acceleration, in distance per
+         * second squared
+         * @param jerkTime the time the acceleration takes to ramp, in seconds
+         * @param dt the time between two samples, in seconds
+         * @return The trajectory
+         */
+        MotionProfile generate(double[] waypoints, double maxVelocity,
+                double maxAcceleration, double jerkTime, double dt);
+    }
+
+    /**
+     * Generates an S-curve profile over the length of the path through the
+     * waypoints.
+     */
+    public static final Generator PATH_LENGTH = new Generator() {
+        public MotionProfile generate(double[] waypoints, double maxVelocity,
+                double maxAcceleration, double jerkTime, double dt) {
+            double length = 0;
+            for (int i = 2; i + 1 < waypoints.length; i += 2) {
+                double dx = waypoints[i] - waypoints[i - 2];
+                double dy = waypoints[i + 1] - waypoints[i - 1];
+                length += Math.sqrt(dx * dx + dy * dy);
+            }
+            return MotionProfile.sCurve(length, maxVelocity, maxAcceleration, jerkTime, dt);
+        }
+    };
+
+    /**
+     * The default number of trajectories kept.
+     */
+    public static final int DEFAULT_CAPACITY = 64;
+    private static final int MAGIC = 0x54524a43;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    /**
+     * The bytes of an entry besides its waypoints and samples: the waypoint
+     * count, five doubles, the ticks, the timestep and the sample count.
+     */
+    private static final int ENTRY_SIZE = 4 + 5 * 8 + 4 + 8 + 4;
+    private static final int SAMPLE_SIZE = 3 * 8;
+
+    private static class Key {
+
+        final double[] waypoints;
+        final double maxVelocity, maxAcceleration, jerkTime, dt;
+        final double wheelRadius;
+        final int ticks;
+        final int hash;
+
+        Key(double[] waypoints, double maxVelocity, double maxAcceleration,
+                double jerkTime, double dt, double wheelRadius, int ticks) {
+            this.waypoints = waypoints;
+            this.maxVelocity = maxVelocity;
+            this.maxAcceleration = maxAcceleration;
+            this.jerkTime = jerkTime;
+            this.dt = dt;
+            this.wheelRadius = wheelRadius;
+            this.ticks = ticks;
+            int h = Arrays.hashCode(waypoints);
+            h = 31 * h + hash(maxVelocity);
+            h = 31 * h + hash(maxAcceleration);
+            h = 31 * h + hash(jerkTime);
+            h = 31 * h + hash(dt);
+            h = 31 * h + hash(wheelRadius);
+            this.hash = 31 * h + ticks;
+        }
+
+        private static int hash(double value) {
+            long bits = Double.doubleToLongBits(value);
+            return (int) (bits ^ bits >>> 32);
+        }
+
+        public int hashCode() {
+            return hash;
+        }
+
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && ticks == other.ticks
+                    && Double.compare(maxVelocity, other.maxVelocity) == 0
+                    && Double.compare(maxAcceleration, other.maxAcceleration) == 0
+                    && Double.compare(jerkTime, other.jerkTime) == 0
+                    && Double.compare(dt, other.dt) == 0
+                    && Double.compare(wheelRadius, other.wheelRadius) == 0
+                    && Arrays.equals(waypoints, other.waypoints);
+        }
+    }
+
+    private final Generator generator;
+    private final int capacity;
+    private final LinkedHashMap<Key, MotionProfile> entries;
+    private long hits, misses;
+
+    /**
+     * Create a cache generating profiles over the path length, with the
+     * default capacity.
+     */
+    public TrajectoryCache() {
+        this(PATH_LENGTH, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param generator generates the trajectories missing from the cache
+     * @param capacity the number of trajectories kept
+     */
+    public TrajectoryCache(Generator generator, final int capacity) {
+        if (generator == null) {
+            throw new NullPointerException("Given generator was null");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.generator = generator;
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Key, MotionProfile>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<Key, MotionProfile> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Get the trajectory for the current wheel radius and ticks, generating
+     * it if it is not cached.
+     *
+     * @param waypoints the x and y of every waypoint, one after the other
+     * @param maxVelocity the highest speed, in distance per second
+     * @param maxAcceleration the highest acceleration, in distance per second
+     * squared
+     * @param jerkTime the time the acceleration takes to ramp, in seconds
+     * @param dt the time between two samples, in seconds
+     * @return The trajectory
+     */
+    public synchronized MotionProfile get(double[] waypoints, double maxVelocity,
+            double maxAcceleration, double jerkTime, double dt) {
+        if (waypoints == null) {
+            throw new NullPointerException("Given waypoints were null");
+        }
+        Key key = new Key(waypoints.clone(), maxVelocity, maxAcceleration, jerkTime, dt,
+                Vars.WHEEL_RADIUS, Vars.TICKS);
+        MotionProfile profile = entries.get(key);
+        if (profile != null) {
+            hits++;
+            return profile;
+        }
+        misses++;
+        profile = generator.generate(key.waypoints, maxVelocity, maxAcceleration, jerkTime, dt);
+        entries.put(key, profile);
+        return profile;
+    }
+
+    /**
+     * Write every cached trajectory to a file, least recently used first. The
+     * trajectories are written to a temporary file next to the given one,
+     * which is then renamed over it, so the file is never left half written.
+     *
+     * @param file the file to write
+     * @throws IOException if the file could not be written
+     */
+    public synchronized void save(File file) throws IOException {
+        File temp = File.createTempFile(file.getName(), ".tmp",
+                file.getAbsoluteFile().getParentFile());
+        boolean saved = false;
+        try {
+            write(temp);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            saved = true;
+        } finally {
+            if (!saved) {
+                temp.delete();
+            }
+        }
+    }
+
+    private void write(File file) throws IOException {
+        FileOutputStream stream = new FileOutputStream(file);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<Key, MotionProfile> entry : entries.entrySet()) {
+                Key key = entry.getKey();
+                out.writeInt(key.waypoints.length);
+                for (int i = 0; i < key.waypoints.length; i++) {
+                    out.writeDouble(key.waypoints[i]);
+                }
+                out.writeDouble(key.maxVelocity);
+                out.writeDouble(key.maxAcceleration);
+                out.writeDouble(key.jerkTime);
+                out.writeDouble(key.dt);
+                out.writeDouble(key.wheelRadius);
+                out.writeInt(key.ticks);
+                MotionProfile profile = entry.getValue();
+                int length = profile.getLength();
+                out.writeDouble(profile.getTimestep());
+                out.writeInt(length);
+                for (int i = 0; i < length; i++) {
+                    out.writeDouble(profile.getPosition(i));
+                    out.writeDouble(profile.getVelocity(i));
+                    out.writeDouble(profile.getAcceleration(i));
+                }
+            }
+            out.flush();
+            stream.getFD().sync();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Add the trajectories of a file written by save(File) to the cache. A
+     * file which is not a cache, or is truncated or corrupt, adds nothing and
+     * is treated as a miss of every trajectory in it.
+     *
+     * @param file the file to read
+     * @return the number of trajectories read, 0 if the file is corrupt
+     * @throws IOException if the file could not be read
+     */
+    public synchronized int load(File file) throws IOException {
+        long remaining = file.length() - HEADER_SIZE;
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (remaining < 0 || in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return 0;
+            }
+            int count = in.readInt();
+            if (count < 0 || count > remaining / ENTRY_SIZE) {
+                return 0;
+            }
+            List<Key> keys = new ArrayList<Key>(count);
+            List<MotionProfile> profiles = new ArrayList<MotionProfile>(count);
+            for (int n = 0; n < count; n++) {
+                remaining -= ENTRY_SIZE;
+                int waypointCount = in.readInt();
+                if (waypointCount < 0 || waypointCount > remaining / 8) {
+                    return 0;
+                }
+                remaining -= waypointCount * 8L;
+                double[] waypoints = new double[waypointCount];
+                for (int i = 0; i < waypoints.length; i++) {
+                    waypoints[i] = in.readDouble();
+                }
+                Key key = new Key(waypoints, in.readDouble(), in.readDouble(),
+                        in.readDouble(), in.readDouble(), in.readDouble(), in.readInt());
+                double dt = in.readDouble();
+                int length = in.readInt();
+                if (length < 0 || length > remaining / SAMPLE_SIZE) {
+                    return 0;
+                }
+                remaining -= (long) length * SAMPLE_SIZE;
+                double[] position = new double[length];
+                double[] velocity = new double[length];
+                double[] acceleration = new double[length];
+                for (int i = 0; i < length; i++) {
+                    position[i] = in.readDouble();
+                    velocity[i] = in.readDouble();
+                    acceleration[i] = in.readDouble();
+                }
+                keys.add(key);
+                profiles.add(new MotionProfile(dt, position, velocity, acceleration));
+            }
+            for (int n = 0; n < count; n++) {
+                entries.put(keys.get(n), profiles.get(n));
+            }
+            return count;
+        } catch (EOFException ex) {
+            return 0;
+        } catch (IllegalArgumentException ex) {
+            return 0;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Drop the trajectories generated for another wheel radius or ticks than
+     * the current ones.
+     *
+     * @return the number of trajectories dropped
+     */
+    public synchronized int removeStale() {
+        int removed = 0;
+        for (Iterator<Key> it = entries.keySet().iterator(); it.hasNext();) {
+            Key key = it.next();
+            if (key.ticks != Vars.TICKS || Double.compare(key.wheelRadius, Vars.WHEEL_RADIUS) != 0) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,154 @@
+package drivetrain.simulation;
+
+import drivetrain.Drivetrain;
+import edu.wpi.first.wpilibj.templates.Vars;
+
+/**
+ * Steps both sides of a Drivetrain at a fixed timestep. The simulation keeps
+ * its own clock, so minutes of driving run as fast as the CPU allows and two
+ * runs with the same inputs give exactly the same result.
+ *
+ * A control task (usually the code calling {@link Drivetrain#arcade}) can be
+ * run every few physics steps, the way the robot loop runs slower than the
+ * motors respond.
+ *
+ * The simulation drives the encoders of the drivetrain, so it turns off the
+ * simulated encoders of the drivetrain and gives it the top speed of the
+ * left model.
+ */
+public class DrivetrainSimulation {
+
+    /**
+     * The default physics timestep, in seconds.
+     */
+    public static final double DEFAULT_TIMESTEP = 0.001;
+    /**
+     * The default gear reduction between the motors and the wheels.
+     */
+    public static final double DEFAULT_GEAR_RATIO = 10.71;
+    /**
+     * The default mass carried by each side of the robot, in kilograms.
+     */
+    public static final double DEFAULT_SIDE_MASS = 25;
+
+    private final Drivetrain drivetrain;
+    private final GearboxSimulation left, right;
+    private final double timestep;
+
+    private Runnable controller;
+    private int stepsPerControl = 1;
+    private long steps;
+
+    /**
+     * Simulate a drivetrain with the default model and timestep.
+     *
+     * @param drivetrain the drivetrain to simulate
+     */
+    public DrivetrainSimulation(Drivetrain drivetrain) {
+        this(drivetrain,
+                new GearboxSimulation(drivetrain.getLeftGearbox(), Vars.WHEEL_RADIUS,
+                        DEFAULT_GEAR_RATIO, DEFAULT_SIDE_MASS, false),
+                new GearboxSimulation(drivetrain.getRightGearbox(), Vars.WHEEL_RADIUS,
+                        DEFAULT_GEAR_RATIO, DEFAULT_SIDE_MASS, true),
+                DEFAULT_TIMESTEP);
+    }
+
+    /**
+     * Simulate a drivetrain with the given models. The right side is
+     * normally inverted, since the drivetrain drives it with negative outputs.
+     *
+     * @param drivetrain the drivetrain to simulate
+     * @param left model of the left gearbox
+     * @param right model of the right gearbox
+     * @param timestep the physics timestep, in seconds
+     */
+    public DrivetrainSimulation(Drivetrain drivetrain, GearboxSimulation left,
+            GearboxSimulation right, double timestep) {
+        if (timestep <= 0) {
+            throw new IllegalArgumentException("Timestep must be positive");
+        }
+        this.drivetrain = drivetrain;
+        this.left = left;
+        this.right = right;
+        this.timestep = timestep;
+        drivetrain.setSimulatedEncoders(false);
+        drivetrain.setMaxVelocity(left.getMaxVelocity());
+    }
+
+    /**
+     * Run a task every given number of seconds of simulated time, before the
+     * physics step. The period is rounded to a whole number of timesteps.
+     *
+     * @param controller the task to run, or null to stop running one
+     * @param period the time between two runs of the task, in seconds
+     */
+    public void setController(Runnable controller, double period) {
+        this.controller = controller;
+        this.stepsPerControl = Math.max(1, (int) Math.round(period / timestep));
+    }
+
+    /**
+     * Advance the simulation by one timestep.
+     */
+    public void step() {
+        if (controller != null && steps % stepsPerControl == 0) {
+            controller.run();
+        }
+        left.step(timestep);
+        right.step(timestep);
+        steps++;
+    }
+
+    /**
+     * Advance the simulation by the given amount of simulated time.
+     *
+     * @param seconds the time to simulate
+     */
+    public void run(double seconds) {
+        long count = Math.round(seconds / timestep);
+        for (long i = 0; i < count; i++) {
+            step();
+        }
+    }
+
+    /**
+     * Step the simulation from timed events, one timestep apart, so it can
+     * run alongside other events on the same clock.
+     *
+     * @param scheduler the scheduler to run the steps
+     */
+    public void schedule(EventScheduler scheduler) {
+        scheduler.schedulePeriodic(Math.round(timestep * 1e9), new Runnable() {
+            public void run() {
+                step();
+            }
+        });
+    }
+
+    /**
+     * @return The simulated time since the start, in seconds
+     */
+    public double getTime() {
+        return steps * timestep;
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    public double getTimestep() {
+        return timestep;
+    }
+
+    public Drivetrain getDrivetrain() {
+        return drivetrain;
+    }
+
+    public GearboxSimulation getLeft() {
+        return left;
+    }
+
+    public GearboxSimulation getRight() {
+        return right;
+    }
+}
@@ -0,0 +1,240 @@
+package drivetrain.simulation;
+
+import edu.wpi.first.wpilibj.TimeSource;
+
+/**
+ * A simulated clock driven by timed events. Events wait in a binary heap
+ * ordered by time, and running the scheduler jumps straight from one event to
+ * the next, so simulated time passes as fast as the events can be run. Events
+ * at the same time run in the order they were scheduled.
+ *
+ * The scheduler is the time source of whatever it drives: an Encoder counting
+ * with countNow() or a ControlLoop run from an event reads the time of the
+ * event being run. The heap is made of primitive arrays, so scheduling does
+ * not allocate once the heap is large enough.
+ *
+ * A scheduler, and everything it drives, is used from a single thread.
+ */
+public class EventScheduler implements TimeSource {
+
+    private long now;
+    private long sequence;
+    private int size;
+    private long[] times = new long[16];
+    private long[] order = new long[16];
+    private Runnable[] events = new Runnable[16];
+    private long eventsRun;
+
+    /**
+     * Create a scheduler starting at time 0.
+     */
+    public EventScheduler() {
+    }
+
+    /**
+     * Create a scheduler starting at the given time.
+     *
+     * @param startNanos the starting time, in nanoseconds
+     */
+    public EventScheduler(long startNanos) {
+        this.now = startNanos;
+    }
+
+    public long nanoTime() {
+        return now;
+    }
+
+    /**
+     * @return The current time, in seconds
+     */
+    public double getTime() {
+        return now * 1e-9;
+    }
+
+    /**
+     * Run an event at the given time, or now if that time has passed.
+     *
+     * @param timeNanos the time of the event, in nanoseconds
+     * @param event the event
+     */
+    public void schedule(long timeNanos, Runnable event) {
+        if (event == null) {
+            throw new NullPointerException("Given event was null");
+        }
+        if (timeNanos < now) {
+            timeNanos = now;
+        }
+        if (size == times.length) {
+            grow();
+        }
+        int index = size++;
+        long seq = sequence++;
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (!before(timeNanos, seq, parent)) {
+                break;
+            }
+            move(parent, index);
+            index = parent;
+        }
+        set(index, timeNanos, seq, event);
+    }
+
+    /**
+     * Run an event after the given delay.
+     *
+     * @param delayNanos the delay, in nanoseconds
+     * @param event the event
+     */
+    public void scheduleAfter(long delayNanos, Runnable event) {
+        schedule(now + delayNanos, event);
+    }
+
+    /**
+     * Run a task every period, starting one period from now.
+     *
+     * @param periodNanos the time between two runs, in nanoseconds
+     * @param task the task
+     */
+    public void schedulePeriodic(final long periodNanos, final Runnable task) {
+        if (periodNanos <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        if (task == null) {
+            throw new NullPointerException("Given task was null");
+        }
+        scheduleAfter(periodNanos, new Runnable() {
+            private long next = now + periodNanos;
+
+            public void run() {
+                task.run();
+                next += periodNanos;
+                schedule(next, this);
+            }
+        });
+    }
+
+    /**
+     * Run the next event, moving the clock to its time.
+     *
+     * @return false if there was no event to run
+     */
+    public boolean step() {
+        if (size == 0) {
+            return false;
+        }
+        now = times[0];
+        Runnable event = events[0];
+        removeFirst();
+        eventsRun++;
+        event.run();
+        return true;
+    }
+
+    /**
+     * Run every event up to the given time, then move the clock to it.
+     *
+     * @param timeNanos the time to run to, in nanoseconds
+     */
+    public void runUntil(long timeNanos) {
+        while (size > 0 && times[0] <= timeNanos) {
+            step();
+        }
+        if (timeNanos > now) {
+            now = timeNanos;
+        }
+    }
+
+    /**
+     * Run every event of the given amount of simulated time.
+     *
+     * @param seconds the time to simulate
+     */
+    public void run(double seconds) {
+        runUntil(now + Math.round(seconds * 1e9));
+    }
+
+    /**
+     * Drop every waiting event.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            events[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * @return The number of waiting events
+     */
+    public int getPending() {
+        return size;
+    }
+
+    /**
+     * @return The number of events run
+     */
+    public long getEventsRun() {
+        return eventsRun;
+    }
+
+    private void removeFirst() {
+        int last = --size;
+        long time = times[last];
+        long seq = order[last];
+        Runnable event = events[last];
+        events[last] = null;
+        if (last == 0) {
+            return;
+        }
+        int index = 0;
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= last) {
+                break;
+            }
+            if (child + 1 < last && before(times[child + 1], order[child + 1], child)) {
+                child++;
+            }
+            if (!before(times[child], order[child], time, seq)) {
+                break;
+            }
+            move(child, index);
+            index = child;
+        }
+        set(index, time, seq, event);
+    }
+
+    private boolean before(long time, long seq, int index) {
+        return before(time, seq, times[index], order[index]);
+    }
+
+    private static boolean before(long time, long seq, long otherTime, long otherSeq) {
+        return time < otherTime || time == otherTime && seq < otherSeq;
+    }
+
+    private void move(int from, int to) {
+        times[to] = times[from];
+        order[to] = order[from];
+        events[to] = events[from];
+    }
+
+    private void set(int index, long time, long seq, Runnable event) {
+        times[index] = time;
+        order[index] = seq;
+        events[index] = event;
+    }
+
+    private void grow() {
+        int capacity = times.length * 2;
+        long[] newTimes = new long[capacity];
+        long[] newOrder = new long[capacity];
+        Runnable[] newEvents = new Runnable[capacity];
+        System.arraycopy(times, 0, newTimes, 0, size);
+        System.arraycopy(order, 0, newOrder, 0, size);
+        System.arraycopy(events, 0, newEvents, 0, size);
+        times = newTimes;
+        order = newOrder;
+        events = newEvents;
+    }
+}
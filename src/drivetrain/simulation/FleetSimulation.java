@@ -0,0 +1,323 @@
+package drivetrain.simulation;
+
+import drivetrain.Drivetrain;
+import drivetrain.MonitoredGearbox;
+import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.templates.Utils;
+
+/**
+ * Simulates many drivetrains at once, for sweeps too large to build a
+ * Drivetrain, gearboxes and encoders per robot. The outputs, speed factors,
+ * wheel states and encoder readings of all the robots are kept in flat
+ * primitive arrays indexed by robot, and a step updates each array in one
+ * loop over the robots.
+ *
+ * Every robot uses the same model as {@link GearboxSimulation}, with the
+ * right side inverted like in {@link DrivetrainSimulation}; only the velocity
+ * scale of each side differs between robots. {@link #copyFrom} and
+ * {@link #copyTo} move a robot to and from a DrivetrainSimulation, so the
+ * Drivetrain logic can be checked against the fleet.
+ */
+public class FleetSimulation {
+
+    private final int robots;
+    private final double timestep;
+    private final double maxVelocity;
+    private final double timeConstant;
+    private final double decay;
+    private final double distancePerPulse;
+    private final double encoderScale;
+    private final double decodingScaleFactor;
+    private final Encoder.Snapshot snapshot = new Encoder.Snapshot();
+    private long steps;
+
+    private final double[] leftOutput, rightOutput;
+    private final double[] leftFactor, rightFactor;
+    private final double[] leftScale, rightScale;
+    private final double[] leftPosition, rightPosition;
+    private final double[] leftVelocity, rightVelocity;
+    private final long[] leftTicks, rightTicks;
+    private final double[] leftPeriod, rightPeriod;
+
+    /**
+     * Simulate a fleet of robots like the given one.
+     *
+     * @param robots the number of robots
+     * @param model the simulation whose model, timestep and encoders are used
+     */
+    public FleetSimulation(int robots, DrivetrainSimulation model) {
+        this(robots, model.getLeft().getMaxVelocity(), model.getLeft().getTimeConstant(),
+                model.getTimestep(),
+                model.getDrivetrain().getLeftGearbox().getEncoder().getDistancePerPulse(),
+                encoderScale(model.getLeft()),
+                model.getDrivetrain().getLeftGearbox().getEncoder().getDecodingScaleFactor());
+    }
+
+    /**
+     * Simulate a fleet of robots with 1x decoding encoders.
+     *
+     * @param robots the number of robots
+     * @param maxVelocity the speed reached at full output, in centimeters per
+     * second
+     * @param timeConstant the time constant of the speed response, in seconds
+     * @param timestep the physics timestep, in seconds
+     * @param distancePerPulse the distance per pulse of the encoders
+     * @param encoderScale the configured wheel radius over the real one
+     */
+    public FleetSimulation(int robots, double maxVelocity, double timeConstant,
+            double timestep, double distancePerPulse, double encoderScale) {
+        this(robots, maxVelocity, timeConstant, timestep, distancePerPulse, encoderScale, 1);
+    }
+
+    /**
+     * Simulate a fleet of robots.
+     *
+     * @param robots the number of robots
+     * @param maxVelocity the speed reached at full output, in centimeters per
+     * second
+     * @param timeConstant the time constant of the speed response, in seconds
+     * @param timestep the physics timestep, in seconds
+     * @param distancePerPulse the distance per pulse of the encoders
+     * @param encoderScale the configured wheel radius over the real one
+     * @param decodingScaleFactor the 1x, 2x or 4x scale factor of the
+     * encoders, as Encoder.getDecodingScaleFactor()
+     */
+    public FleetSimulation(int robots, double maxVelocity, double timeConstant,
+            double timestep, double distancePerPulse, double encoderScale,
+            double decodingScaleFactor) {
+        if (robots <= 0) {
+            throw new IllegalArgumentException("A fleet needs at least one robot");
+        }
+        if (maxVelocity <= 0 || timeConstant <= 0 || timestep <= 0
+                || distancePerPulse <= 0 || encoderScale <= 0 || decodingScaleFactor <= 0) {
+            throw new IllegalArgumentException("Model parameters must be positive");
+        }
+        this.robots = robots;
+        this.maxVelocity = maxVelocity;
+        this.timeConstant = timeConstant;
+        this.timestep = timestep;
+        this.decay = Math.exp(-timestep / timeConstant);
+        this.distancePerPulse = distancePerPulse;
+        this.encoderScale = encoderScale;
+        this.decodingScaleFactor = decodingScaleFactor;
+        leftOutput = new double[robots];
+        rightOutput = new double[robots];
+        leftFactor = filled(robots, 1);
+        rightFactor = filled(robots, 1);
+        leftScale = filled(robots, 1);
+        rightScale = filled(robots, 1);
+        leftPosition = new double[robots];
+        rightPosition = new double[robots];
+        leftVelocity = new double[robots];
+        rightVelocity = new double[robots];
+        leftTicks = new long[robots];
+        rightTicks = new long[robots];
+        leftPeriod = filled(robots, Double.POSITIVE_INFINITY);
+        rightPeriod = filled(robots, Double.POSITIVE_INFINITY);
+    }
+
+    private static double encoderScale(GearboxSimulation side) {
+        double radius = side.getGearbox().getWheelRadius();
+        return radius > 0 ? radius / side.getWheelRadius() : 1;
+    }
+
+    private static double[] filled(int length, double value) {
+        double[] array = new double[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = value;
+        }
+        return array;
+    }
+
+    /**
+     * Set the speeds of a robot the way Drivetrain.setLeftSpeed() and
+     * setRightSpeed() do, scaled by the speed factors.
+     *
+     * @param robot the index of the robot
+     * @param leftSpeed speed of the left side in range of [-1.0,1.0]
+     * @param rightSpeed speed of the right side in range of [-1.0,1.0]
+     */
+    public void setSpeeds(int robot, double leftSpeed, double rightSpeed) {
+        leftOutput[robot] = Utils.limitSpeed(leftSpeed * leftFactor[robot]);
+        rightOutput[robot] = Utils.limitSpeed(-rightSpeed * rightFactor[robot]);
+    }
+
+    /**
+     * Set the speed factors of a robot, which apply from the next setSpeeds().
+     *
+     * @param robot the index of the robot
+     * @param left the factor of the left side
+     * @param right the factor of the right side
+     */
+    public void setSpeedFactors(int robot, double left, double right) {
+        leftFactor[robot] = Utils.limitSpeed(left);
+        rightFactor[robot] = Utils.limitSpeed(right);
+    }
+
+    /**
+     * Scale the speed the wheels of a robot reach for a given output.
+     *
+     * @param robot the index of the robot
+     * @param left multiplier of the top speed of the left side
+     * @param right multiplier of the top speed of the right side
+     */
+    public void setVelocityScales(int robot, double left, double right) {
+        leftScale[robot] = left;
+        rightScale[robot] = right;
+    }
+
+    /**
+     * Advance every robot by one timestep.
+     */
+    public void step() {
+        stepSide(leftOutput, 1, leftScale, leftPosition, leftVelocity, leftTicks, leftPeriod);
+        stepSide(rightOutput, -1, rightScale, rightPosition, rightVelocity, rightTicks, rightPeriod);
+        steps++;
+    }
+
+    private void stepSide(double[] output, double direction, double[] scale,
+            double[] position, double[] velocity, long[] ticks, double[] period) {
+        double dt = timestep;
+        double gain = timeConstant * (1 - decay);
+        double top = direction * maxVelocity;
+        for (int i = 0; i < robots; i++) {
+            double target = output[i] * top * scale[i];
+            double difference = velocity[i] - target;
+            position[i] += target * dt + difference * gain;
+            velocity[i] = target + difference * decay;
+        }
+        // raw counts, like GearboxSimulation sets them
+        double pulses = encoderScale / distancePerPulse / decodingScaleFactor;
+        for (int i = 0; i < robots; i++) {
+            ticks[i] = (long) Math.floor(position[i] * pulses);
+            double rate = velocity[i] * encoderScale;
+            period[i] = rate == 0 ? Double.POSITIVE_INFINITY : distancePerPulse / rate;
+        }
+    }
+
+    /**
+     * Advance every robot by the given amount of simulated time.
+     *
+     * @param seconds the time to simulate
+     */
+    public void run(double seconds) {
+        long count = Math.round(seconds / timestep);
+        for (long i = 0; i < count; i++) {
+            step();
+        }
+    }
+
+    /**
+     * Copy the outputs, speed factors, wheel states and encoder readings of
+     * a simulated drivetrain into a robot of the fleet.
+     *
+     * @param robot the index of the robot
+     * @param simulation the simulation to copy from
+     */
+    public void copyFrom(int robot, DrivetrainSimulation simulation) {
+        Drivetrain drivetrain = simulation.getDrivetrain();
+        MonitoredGearbox left = drivetrain.getLeftGearbox();
+        MonitoredGearbox right = drivetrain.getRightGearbox();
+        leftOutput[robot] = left.get();
+        rightOutput[robot] = right.get();
+        leftFactor[robot] = left.getSpeedFactor();
+        rightFactor[robot] = right.getSpeedFactor();
+        leftScale[robot] = simulation.getLeft().getVelocityScale();
+        rightScale[robot] = simulation.getRight().getVelocityScale();
+        leftPosition[robot] = simulation.getLeft().getPosition();
+        rightPosition[robot] = simulation.getRight().getPosition();
+        leftVelocity[robot] = simulation.getLeft().getVelocity();
+        rightVelocity[robot] = simulation.getRight().getVelocity();
+        left.getEncoder().getSnapshot(snapshot);
+        leftTicks[robot] = snapshot.count;
+        leftPeriod[robot] = snapshot.period / snapshot.decodingScaleFactor;
+        right.getEncoder().getSnapshot(snapshot);
+        rightTicks[robot] = snapshot.count;
+        rightPeriod[robot] = snapshot.period / snapshot.decodingScaleFactor;
+    }
+
+    /**
+     * Copy the speed factors and wheel states of a robot of the fleet into a
+     * simulated drivetrain, which updates its encoders. The outputs are not
+     * copied, since they are what the drivetrain logic decides.
+     *
+     * @param robot the index of the robot
+     * @param simulation the simulation to copy to
+     */
+    public void copyTo(int robot, DrivetrainSimulation simulation) {
+        Drivetrain drivetrain = simulation.getDrivetrain();
+        drivetrain.setLeftSpeedFactor(leftFactor[robot]);
+        drivetrain.setRightSpeedFactor(rightFactor[robot]);
+        simulation.getLeft().setVelocityScale(leftScale[robot]);
+        simulation.getRight().setVelocityScale(rightScale[robot]);
+        simulation.getLeft().setState(leftPosition[robot], leftVelocity[robot]);
+        simulation.getRight().setState(rightPosition[robot], rightVelocity[robot]);
+    }
+
+    public int getRobots() {
+        return robots;
+    }
+
+    /**
+     * @return The simulated time since the start, in seconds
+     */
+    public double getTime() {
+        return steps * timestep;
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    public double getLeftOutput(int robot) {
+        return leftOutput[robot];
+    }
+
+    public double getRightOutput(int robot) {
+        return rightOutput[robot];
+    }
+
+    public double getLeftPosition(int robot) {
+        return leftPosition[robot];
+    }
+
+    public double getRightPosition(int robot) {
+        return rightPosition[robot];
+    }
+
+    public double getLeftVelocity(int robot) {
+        return leftVelocity[robot];
+    }
+
+    public double getRightVelocity(int robot) {
+        return rightVelocity[robot];
+    }
+
+    /**
+     * @return The raw count of the left encoder of the robot
+     */
+    public long getLeftTicks(int robot) {
+        return leftTicks[robot];
+    }
+
+    /**
+     * @return The raw count of the right encoder of the robot
+     */
+    public long getRightTicks(int robot) {
+        return rightTicks[robot];
+    }
+
+    /**
+     * @return The period of the left encoder of the robot, in seconds
+     */
+    public double getLeftPeriod(int robot) {
+        return leftPeriod[robot];
+    }
+
+    /**
+     * @return The period of the right encoder of the robot, in seconds
+     */
+    public double getRightPeriod(int robot) {
+        return rightPeriod[robot];
+    }
+}
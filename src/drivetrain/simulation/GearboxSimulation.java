@@ -0,0 +1,184 @@
+package drivetrain.simulation;
+
+import drivetrain.MonitoredGearbox;
+import edu.wpi.first.wpilibj.Encoder;
+
+/**
+ * Simulates the motors, gearing and wheel behind one MonitoredGearbox and
+ * feeds the result back into its Encoder.
+ *
+ * The plant is a DC motor driving a mass through a gear reduction, which
+ * behaves as a first order system: the wheel speed approaches
+ * {@code output * maxVelocity} with a time constant that shrinks as more motors
+ * share the load. Each step is solved exactly for the timestep, so the result
+ * only depends on the sequence of outputs and never on the wall clock.
+ *
+ * Distances and velocities are in centimeters, like the wheel radius.
+ */
+public class GearboxSimulation {
+
+    /**
+     * Free speed of a CIM motor, in RPM.
+     */
+    public static final double CIM_FREE_SPEED = 5330;
+    /**
+     * Stall torque of a CIM motor, in newton meters.
+     */
+    public static final double CIM_STALL_TORQUE = 2.41;
+
+    private final MonitoredGearbox gearbox;
+    private final boolean inverted;
+    private final double wheelRadius;
+    private final double maxVelocity;
+    private final double timeConstant;
+
+    private double velocityScale = 1;
+    private double stepSize = Double.NaN;
+    private double decay;
+
+    private double position;
+    private double velocity;
+
+    /**
+     * Simulate a gearbox of CIM motors.
+     *
+     * @param gearbox the gearbox to read the output from
+     * @param wheelRadius the radius of the wheel in centimeters
+     * @param gearRatio motor rotations per wheel rotation
+     * @param mass the mass carried by this side of the robot, in kilograms
+     * @param inverted true if a positive output drives the wheel backwards
+     */
+    public GearboxSimulation(MonitoredGearbox gearbox, double wheelRadius,
+            double gearRatio, double mass, boolean inverted) {
+        this(gearbox, wheelRadius, gearRatio, mass, inverted,
+                CIM_FREE_SPEED, CIM_STALL_TORQUE);
+    }
+
+    /**
+     * Simulate a gearbox.
+     *
+     * @param gearbox the gearbox to read the output from
+     * @param wheelRadius the radius of the wheel in centimeters
+     * @param gearRatio motor rotations per wheel rotation
+     * @param mass the mass carried by this side of the robot, in kilograms
+     * @param inverted true if a positive output drives the wheel backwards
+     * @param freeSpeed the free speed of a single motor, in RPM
+     * @param stallTorque the stall torque of a single motor, in newton meters
+     */
+    public GearboxSimulation(MonitoredGearbox gearbox, double wheelRadius,
+            double gearRatio, double mass, boolean inverted,
+            double freeSpeed, double stallTorque) {
+        if (gearbox == null) {
+            throw new NullPointerException("Given gearbox was null");
+        }
+        if (wheelRadius <= 0 || gearRatio <= 0 || mass <= 0
+                || freeSpeed <= 0 || stallTorque <= 0) {
+            throw new IllegalArgumentException("Model parameters must be positive");
+        }
+        this.gearbox = gearbox;
+        this.inverted = inverted;
+        this.wheelRadius = wheelRadius;
+        int motors = gearbox.hasThreeControllers() ? 3 : 2;
+        double radiusMeters = wheelRadius / 100;
+        double freeOmega = freeSpeed * 2 * Math.PI / 60;
+        double maxVelocityMeters = freeOmega / gearRatio * radiusMeters;
+        double maxAcceleration = motors * stallTorque * gearRatio / radiusMeters / mass;
+        this.maxVelocity = maxVelocityMeters * 100;
+        this.timeConstant = maxVelocityMeters / maxAcceleration;
+    }
+
+    /**
+     * Advance the model by one timestep and update the encoder.
+     *
+     * @param dt the timestep in seconds
+     */
+    public void step(double dt) {
+        if (dt != stepSize) {
+            stepSize = dt;
+            decay = Math.exp(-dt / timeConstant);
+        }
+        double output = gearbox.get();
+        if (inverted) {
+            output = -output;
+        }
+        double target = output * maxVelocity * velocityScale;
+        double difference = velocity - target;
+        position += target * dt + difference * timeConstant * (1 - decay);
+        velocity = target + difference * decay;
+        updateEncoder();
+    }
+
+    private void updateEncoder() {
+        Encoder encoder = gearbox.getEncoder();
+        double distancePerPulse = encoder.getDistancePerPulse();
+        if (distancePerPulse == 0) {
+            return;
+        }
+        // the encoder counts wheel rotations, which the robot converts to
+        // distance with the radius it was configured with
+        double scale = gearbox.getWheelRadius() > 0 ? gearbox.getWheelRadius() / wheelRadius : 1;
+        double pulses = position * scale / distancePerPulse / encoder.getDecodingScaleFactor();
+        encoder.setTicks((int) Math.floor(pulses));
+        encoder.setRate(velocity * scale);
+    }
+
+    /**
+     * Move the wheel to a given state, for instance to start a scenario from
+     * motion.
+     *
+     * @param position distance travelled in centimeters
+     * @param velocity wheel speed in centimeters per second
+     */
+    public void setState(double position, double velocity) {
+        this.position = position;
+        this.velocity = velocity;
+        updateEncoder();
+    }
+
+    /**
+     * Scale the speed the wheel reaches for a given output, to model worn
+     * wheels or weaker motors.
+     *
+     * @param velocityScale multiplier of the top speed
+     */
+    public void setVelocityScale(double velocityScale) {
+        this.velocityScale = velocityScale;
+    }
+
+    public double getVelocityScale() {
+        return velocityScale;
+    }
+
+    public double getPosition() {
+        return position;
+    }
+
+    public double getVelocity() {
+        return velocity;
+    }
+
+    /**
+     * @return The speed reached at full output, in centimeters per second
+     */
+    public double getMaxVelocity() {
+        return maxVelocity;
+    }
+
+    /**
+     * @return The time constant of the speed response, in seconds
+     */
+    public double getTimeConstant() {
+        return timeConstant;
+    }
+
+    /**
+     * @return The real radius of the wheel, in centimeters
+     */
+    public double getWheelRadius() {
+        return wheelRadius;
+    }
+
+    public MonitoredGearbox getGearbox() {
+        return gearbox;
+    }
+}
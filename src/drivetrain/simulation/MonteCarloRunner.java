@@ -0,0 +1,238 @@
+package drivetrain.simulation;
+
+import drivetrain.Drivetrain;
+import drivetrain.MonitoredGearbox;
+import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.templates.Vars;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Drives thousands of randomized simulated drivetrains straight and measures
+ * how far each one drifts to the side. Every scenario builds its own
+ * Drivetrain, so scenarios are independent and are spread over all the cores
+ * with fork-join.
+ *
+ * Each scenario draws its wheel radii, encoder ticks per revolution, motor
+ * strength and joystick noise from a Random seeded by the runner seed and the
+ * scenario index, so any single scenario (for instance the worst one) can be
+ * reproduced with {@link #runScenario(long)}.
+ *
+ * The result of a scenario is the difference between the distances travelled
+ * by the two wheels, relative to the average distance.
+ */
+public class MonteCarloRunner {
+
+    /**
+     * Scenarios run by a single task before it stops splitting.
+     */
+    private static final int THRESHOLD = 16;
+    private static ForkJoinPool sharedPool;
+
+    private final long seed;
+    private final ForkJoinPool pool;
+
+    private double duration = 5;
+    private double speed = 0.8;
+    private double controlPeriod = 0.02;
+    private double radiusTolerance = 0.02;
+    private int minTicks = Vars.TICKS;
+    private int maxTicks = Vars.TICKS;
+    private double motorTolerance = 0.05;
+    private double inputNoise = 0.02;
+
+    /**
+     * Create a runner using every available core, through a pool shared by
+     * all such runners.
+     *
+     * @param seed the seed all scenario seeds are derived from
+     */
+    public MonteCarloRunner(long seed) {
+        this(seed, getSharedPool());
+    }
+
+    /**
+     * Create a runner using the given pool. The pool stays owned by the
+     * caller, who shuts it down.
+     *
+     * @param seed the seed all scenario seeds are derived from
+     * @param pool the pool to run the scenarios on
+     */
+    public MonteCarloRunner(long seed, ForkJoinPool pool) {
+        if (pool == null) {
+            throw new NullPointerException("Given pool was null");
+        }
+        this.seed = seed;
+        this.pool = pool;
+    }
+
+    /**
+     * @return The pool of the runners created without one, started on first
+     * use. Its worker threads are daemons and end when they stay idle.
+     */
+    public static synchronized ForkJoinPool getSharedPool() {
+        if (sharedPool == null) {
+            sharedPool = new ForkJoinPool();
+        }
+        return sharedPool;
+    }
+
+    /**
+     * Run scenarios 0 to count - 1 and gather their results.
+     *
+     * @param count the number of scenarios
+     * @return statistics of the relative drift over all scenarios
+     */
+    public ScenarioStatistics run(int count) {
+        return pool.invoke(new ScenarioTask(this, 0, count));
+    }
+
+    /**
+     * Run a single scenario. The same index always gives the same result.
+     *
+     * @param index the index of the scenario
+     * @return the relative drift of the scenario
+     */
+    public double runScenario(long index) {
+        Random random = new Random(scenarioSeed(seed, index));
+        int ticks = minTicks + random.nextInt(maxTicks - minTicks + 1);
+        double leftRadius = Vars.WHEEL_RADIUS * (1 + radiusTolerance * (2 * random.nextDouble() - 1));
+        double rightRadius = Vars.WHEEL_RADIUS * (1 + radiusTolerance * (2 * random.nextDouble() - 1));
+
+        MonitoredGearbox left = new MonitoredGearbox(1, 2, new Encoder(1, 2));
+        MonitoredGearbox right = new MonitoredGearbox(3, 4, new Encoder(3, 4));
+        left.setWheelRadius(Vars.WHEEL_RADIUS, ticks);
+        right.setWheelRadius(Vars.WHEEL_RADIUS, ticks);
+        final Drivetrain drivetrain = new Drivetrain(left, right);
+
+        GearboxSimulation leftModel = new GearboxSimulation(left, leftRadius,
+                DrivetrainSimulation.DEFAULT_GEAR_RATIO, DrivetrainSimulation.DEFAULT_SIDE_MASS, false);
+        GearboxSimulation rightModel = new GearboxSimulation(right, rightRadius,
+                DrivetrainSimulation.DEFAULT_GEAR_RATIO, DrivetrainSimulation.DEFAULT_SIDE_MASS, true);
+        leftModel.setVelocityScale(1 + motorTolerance * (2 * random.nextDouble() - 1));
+        rightModel.setVelocityScale(1 + motorTolerance * (2 * random.nextDouble() - 1));
+        DrivetrainSimulation simulation = new DrivetrainSimulation(drivetrain,
+                leftModel, rightModel, DrivetrainSimulation.DEFAULT_TIMESTEP);
+
+        final Random noise = random;
+        simulation.setController(new Runnable() {
+            public void run() {
+                drivetrain.straight(speed + inputNoise * noise.nextGaussian());
+            }
+        }, controlPeriod);
+        simulation.run(duration);
+
+        double leftDistance = leftModel.getPosition();
+        double rightDistance = rightModel.getPosition();
+        double average = (leftDistance + rightDistance) / 2;
+        if (average == 0) {
+            return 0;
+        }
+        return Math.abs(leftDistance - rightDistance) / Math.abs(average);
+    }
+
+    /**
+     * Derive the seed of a scenario, so neighbouring scenarios get unrelated
+     * random sequences.
+     */
+    static long scenarioSeed(long seed, long index) {
+        long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static class ScenarioTask extends RecursiveTask<ScenarioStatistics> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient MonteCarloRunner runner;
+        private final long from, to;
+
+        ScenarioTask(MonteCarloRunner runner, long from, long to) {
+            this.runner = runner;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ScenarioStatistics compute() {
+            if (to - from <= THRESHOLD) {
+                ScenarioStatistics statistics = new ScenarioStatistics();
+                for (long i = from; i < to; i++) {
+                    statistics.add(i, runner.runScenario(i));
+                }
+                return statistics;
+            }
+            long middle = (from + to) >>> 1;
+            ScenarioTask first = new ScenarioTask(runner, from, middle);
+            ScenarioTask second = new ScenarioTask(runner, middle, to);
+            first.fork();
+            ScenarioStatistics statistics = second.compute();
+            statistics.combine(first.join());
+            return statistics;
+        }
+    }
+
+    /**
+     * @param duration the simulated time of each scenario, in seconds
+     */
+    public void setDuration(double duration) {
+        this.duration = duration;
+    }
+
+    /**
+     * @param speed the speed given to {@link Drivetrain#straight(double)}
+     */
+    public void setSpeed(double speed) {
+        this.speed = speed;
+    }
+
+    /**
+     * @param controlPeriod the time between two control cycles, in seconds
+     */
+    public void setControlPeriod(double controlPeriod) {
+        this.controlPeriod = controlPeriod;
+    }
+
+    /**
+     * @param radiusTolerance the largest relative difference between a real
+     * wheel radius and {@link Vars#WHEEL_RADIUS}
+     */
+    public void setRadiusTolerance(double radiusTolerance) {
+        this.radiusTolerance = radiusTolerance;
+    }
+
+    /**
+     * @param minTicks the smallest number of encoder ticks per revolution
+     * @param maxTicks the largest number of encoder ticks per revolution
+     */
+    public void setTicksRange(int minTicks, int maxTicks) {
+        if (minTicks <= 0 || maxTicks < minTicks) {
+            throw new IllegalArgumentException("Invalid ticks range");
+        }
+        this.minTicks = minTicks;
+        this.maxTicks = maxTicks;
+    }
+
+    /**
+     * @param motorTolerance the largest relative difference between the top
+     * speed of a side and the nominal one
+     */
+    public void setMotorTolerance(double motorTolerance) {
+        this.motorTolerance = motorTolerance;
+    }
+
+    /**
+     * @param inputNoise the standard deviation of the noise added to the speed
+     * every control cycle
+     */
+    public void setInputNoise(double inputNoise) {
+        this.inputNoise = inputNoise;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
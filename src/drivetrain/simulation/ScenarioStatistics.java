@@ -0,0 +1,107 @@
+package drivetrain.simulation;
+
+/**
+ * Running statistics of one value over many scenarios. Two instances gathered
+ * on different threads can be merged, so each fork-join task keeps its own and
+ * nothing is shared while the scenarios run.
+ */
+public class ScenarioStatistics {
+
+    private long count;
+    private double mean;
+    private double sumOfSquares; // of the differences from the mean
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private long worstScenario = -1;
+
+    /**
+     * Add the result of a scenario.
+     *
+     * @param scenario the index of the scenario
+     * @param value the result
+     */
+    public void add(long scenario, double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        sumOfSquares += delta * (value - mean);
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+            worstScenario = scenario;
+        }
+    }
+
+    /**
+     * Merge the results gathered by another instance into this one.
+     *
+     * @param other the statistics to merge
+     */
+    public void combine(ScenarioStatistics other) {
+        if (other.count == 0) {
+            return;
+        }
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            sumOfSquares = other.sumOfSquares;
+            min = other.min;
+            max = other.max;
+            worstScenario = other.worstScenario;
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        mean += delta * other.count / total;
+        sumOfSquares += other.sumOfSquares + delta * delta * count * other.count / total;
+        count = total;
+        min = Math.min(min, other.min);
+        if (other.max > max) {
+            max = other.max;
+            worstScenario = other.worstScenario;
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return The sample variance, or 0 with less than two scenarios
+     */
+    public double getVariance() {
+        return count < 2 ? 0 : sumOfSquares / (count - 1);
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * @return The index of the scenario with the largest result, or -1 if
+     * there are no results
+     */
+    public long getWorstScenario() {
+        return worstScenario;
+    }
+
+    @Override
+    public String toString() {
+        return "n=" + count + " mean=" + mean + " sd=" + getStandardDeviation()
+                + " min=" + min + " max=" + max + " worst=" + worstScenario;
+    }
+}
@@ -0,0 +1,62 @@
+package drivetrain.telemetry;
+
+import java.io.File;
+
+/**
+ * Layout of the telemetry segment files. A segment is a fixed size file made
+ * of a header followed by fixed width records, so record {@code i} is always at
+ * {@code HEADER_SIZE + i * RECORD_SIZE} and can be reached without reading the
+ * ones before it. The header holds the number of valid records, which the
+ * recorder updates after writing every record.
+ */
+public final class TelemetryFormat {
+
+    public static final int MAGIC = 0x544C4D31; // "TLM1"
+    public static final int VERSION = 3;
+
+    // header
+    public static final int HEADER_MAGIC = 0;
+    public static final int HEADER_VERSION = 4;
+    public static final int HEADER_RECORD_SIZE = 8;
+    public static final int HEADER_SEGMENT = 12;
+    public static final int HEADER_COUNT = 16;
+    public static final int HEADER_SIZE = 32;
+
+    // record
+    public static final int TIME = 0;
+    public static final int MOVE = 8;
+    public static final int ROTATE = 16;
+    public static final int LEFT = 24;
+    public static final int RIGHT = 64;
+    public static final int LEFT_RAW = 104;
+    public static final int RIGHT_RAW = 112;
+    public static final int RECORD_SIZE = 120;
+
+    // offsets within the block of each side
+    public static final int OUTPUT = 0;
+    public static final int SPEED_FACTOR = 8;
+    public static final int DISTANCE = 16;
+    public static final int VELOCITY = 24;
+    public static final int PERIOD = 32; // raw, as taken by Encoder.setPeriod
+
+    private TelemetryFormat() {
+    }
+
+    /**
+     * @param directory the directory of the recording
+     * @param prefix the name of the recording
+     * @param segment the index of the segment
+     * @return The file holding the given segment
+     */
+    public static File segmentFile(File directory, String prefix, int segment) {
+        return new File(directory, String.format("%s-%05d.tlm", prefix, segment));
+    }
+
+    /**
+     * @param recordsPerSegment the number of records in a segment
+     * @return The size of a segment file, in bytes
+     */
+    public static long segmentSize(int recordsPerSegment) {
+        return HEADER_SIZE + (long) recordsPerSegment * RECORD_SIZE;
+    }
+}
@@ -0,0 +1,296 @@
+package drivetrain.telemetry;
+
+import drivetrain.Drivetrain;
+import drivetrain.MonitoredGearbox;
+import edu.wpi.first.wpilibj.Encoder;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import static drivetrain.telemetry.TelemetryFormat.*;
+
+/**
+ * Records the state of both gearboxes of a Drivetrain once per cycle into
+ * memory mapped segment files. Segments are preallocated and mapped when they
+ * are opened, so recording a sample is a handful of writes to memory: no
+ * system call and no allocation. A background thread maps the next segment
+ * while the current one fills up, and writes full segments to the disk, so
+ * moving on to the next segment only swaps buffers. If the next segment is
+ * not mapped yet when the current one is full, the recorder waits for it and
+ * counts a stall.
+ *
+ * Each record holds the driver inputs and, for each side, the gearbox output,
+ * speed factor, distance, velocity, raw encoder period and raw encoder count.
+ * See {@link TelemetryFormat} for the layout.
+ */
+public class TelemetryRecorder {
+
+    /**
+     * The default number of records in a segment, a bit over a minute at
+     * 1 kHz.
+     */
+    public static final int DEFAULT_RECORDS_PER_SEGMENT = 65536;
+
+    private final Drivetrain drivetrain;
+    private final File directory;
+    private final String prefix;
+    private final int recordsPerSegment;
+
+    private final ExecutorService io;
+    private final Encoder.Snapshot leftSnapshot = new Encoder.Snapshot();
+    private final Encoder.Snapshot rightSnapshot = new Encoder.Snapshot();
+
+    private Segment current;
+    private Future<Segment> next;
+    private int segment;
+    private int count;
+    private long total;
+    private long stalls;
+
+    /**
+     * A mapped segment file.
+     */
+    private static final class Segment {
+
+        final int index;
+        final RandomAccessFile file;
+        final MappedByteBuffer buffer;
+
+        Segment(int index, RandomAccessFile file, MappedByteBuffer buffer) {
+            this.index = index;
+            this.file = file;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Create a recorder with the default segment size.
+     *
+     * @param drivetrain the drivetrain to record
+     * @param directory where to write the segments
+     * @param prefix the name of the recording
+     * @throws IOException if the first segment could not be created
+     */
+    public TelemetryRecorder(Drivetrain drivetrain, File directory, String prefix)
+            throws IOException {
+        this(drivetrain, directory, prefix, DEFAULT_RECORDS_PER_SEGMENT);
+    }
+
+    /**
+     * Create a recorder.
+     *
+     * @param drivetrain the drivetrain to record
+     * @param directory where to write the segments
+     * @param prefix the name of the recording
+     * @param recordsPerSegment the number of records in each segment
+     * @throws IOException if the first segment could not be created
+     */
+    public TelemetryRecorder(Drivetrain drivetrain, File directory, String prefix,
+            int recordsPerSegment) throws IOException {
+        if (recordsPerSegment <= 0
+                || segmentSize(recordsPerSegment) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid segment size " + recordsPerSegment);
+        }
+        this.drivetrain = drivetrain;
+        this.directory = directory;
+        this.prefix = prefix;
+        this.recordsPerSegment = recordsPerSegment;
+        this.current = openSegment(0);
+        this.io = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "TelemetryRecorder");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        prepare(1);
+    }
+
+    /**
+     * Record the current state of the drivetrain.
+     *
+     * @param timeNanos the time of the sample, in nanoseconds
+     * @param moveValue the move value given to the drivetrain this cycle
+     * @param rotateValue the rotate value given to the drivetrain this cycle
+     * @throws IOException if the next segment could not be created
+     */
+    public void record(long timeNanos, double moveValue, double rotateValue)
+            throws IOException {
+        if (current == null) {
+            throw new IllegalStateException("Recorder is closed");
+        }
+        if (count == recordsPerSegment) {
+            if (!next.isDone()) {
+                stalls++;
+            }
+            Segment full = current;
+            current = take(next);
+            count = 0;
+            segment = current.index;
+            release(full, false);
+            prepare(current.index + 1);
+        }
+        int offset = HEADER_SIZE + count * RECORD_SIZE;
+        MappedByteBuffer b = current.buffer;
+        b.putLong(offset + TIME, timeNanos);
+        b.putDouble(offset + MOVE, moveValue);
+        b.putDouble(offset + ROTATE, rotateValue);
+        MonitoredGearbox left = drivetrain.getLeftGearbox();
+        MonitoredGearbox right = drivetrain.getRightGearbox();
+        left.getEncoder().getSnapshot(leftSnapshot);
+        right.getEncoder().getSnapshot(rightSnapshot);
+        writeSide(b, offset + LEFT, left, leftSnapshot);
+        writeSide(b, offset + RIGHT, right, rightSnapshot);
+        b.putLong(offset + LEFT_RAW, leftSnapshot.count);
+        b.putLong(offset + RIGHT_RAW, rightSnapshot.count);
+        count++;
+        total++;
+        b.putLong(HEADER_COUNT, count);
+    }
+
+    private static void writeSide(MappedByteBuffer b, int offset, MonitoredGearbox gearbox,
+            Encoder.Snapshot snapshot) {
+        b.putDouble(offset + OUTPUT, gearbox.get());
+        b.putDouble(offset + SPEED_FACTOR, gearbox.getSpeedFactor());
+        b.putDouble(offset + DISTANCE, snapshot.getDistance());
+        b.putDouble(offset + VELOCITY, snapshot.getRate());
+        b.putDouble(offset + PERIOD, snapshot.period);
+    }
+
+    private Segment openSegment(int index) throws IOException {
+        long size = segmentSize(recordsPerSegment);
+        RandomAccessFile file = new RandomAccessFile(segmentFile(directory, prefix, index), "rw");
+        try {
+            file.setLength(size);
+            MappedByteBuffer buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(HEADER_MAGIC, MAGIC);
+            buffer.putInt(HEADER_VERSION, VERSION);
+            buffer.putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+            buffer.putInt(HEADER_SEGMENT, index);
+            buffer.putLong(HEADER_COUNT, 0);
+            return new Segment(index, file, buffer);
+        } catch (IOException ex) {
+            file.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Map the given segment on the background thread.
+     */
+    private void prepare(final int index) {
+        next = io.submit(new Callable<Segment>() {
+            public Segment call() throws IOException {
+                return openSegment(index);
+            }
+        });
+    }
+
+    private static Segment take(Future<Segment> segment) throws IOException {
+        try {
+            return segment.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while opening a segment", ex);
+        } catch (ExecutionException ex) {
+            throw new IOException("Could not open the next segment", ex.getCause());
+        }
+    }
+
+    /**
+     * Write a segment to the disk and close it on the background thread, or
+     * delete it if it was never used.
+     */
+    private void release(final Segment segment, final boolean delete) {
+        io.execute(new Runnable() {
+            public void run() {
+                try {
+                    if (!delete) {
+                        segment.buffer.force();
+                    }
+                    segment.file.close();
+                } catch (IOException ex) {
+                    // nothing to report it to; the header count stays valid
+                }
+                if (delete) {
+                    segmentFile(directory, prefix, segment.index).delete();
+                }
+            }
+        });
+    }
+
+    /**
+     * Write everything recorded so far to the disk. This is the slow part, so
+     * do it outside the control loop, from the thread recording.
+     */
+    public void force() {
+        if (current != null) {
+            current.buffer.force();
+        }
+    }
+
+    /**
+     * Write the current segment to the disk and stop recording. Waits for
+     * the background thread to finish writing the earlier segments.
+     *
+     * @throws IOException if the segment could not be closed
+     */
+    public void close() throws IOException {
+        if (current == null) {
+            return;
+        }
+        Segment last = current;
+        current = null;
+        try {
+            last.buffer.force();
+            last.file.close();
+        } finally {
+            try {
+                release(take(next), true);
+            } catch (IOException ex) {
+                // the unused segment could not be opened, so there is nothing to delete
+            }
+            io.shutdown();
+            try {
+                io.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return The index of the segment being written
+     */
+    public int getSegment() {
+        return segment;
+    }
+
+    /**
+     * @return The number of times the recorder had to wait for the next
+     * segment to be mapped
+     */
+    public long getStalls() {
+        return stalls;
+    }
+
+    /**
+     * @return The number of records written since the recorder was created
+     */
+    public long getRecordCount() {
+        return total;
+    }
+
+    public int getRecordsPerSegment() {
+        return recordsPerSegment;
+    }
+}
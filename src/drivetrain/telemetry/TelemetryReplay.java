@@ -0,0 +1,248 @@
+package drivetrain.telemetry;
+
+import drivetrain.Drivetrain;
+import drivetrain.MonitoredGearbox;
+import edu.wpi.first.wpilibj.Encoder;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import static drivetrain.telemetry.TelemetryFormat.*;
+
+/**
+ * Drives a Drivetrain from a recording made by {@link TelemetryRecorder}. For
+ * every record the recorded speed factors are set on the gearboxes, the
+ * recorded driver inputs are given to
+ * {@link Drivetrain#arcade(double, double)}, and the resulting gearbox outputs
+ * are compared with the recorded ones. The recorded encoder counts and periods
+ * are loaded afterwards, since driving sets the rate of the encoders, so the
+ * encoders hold the recorded state until the next record.
+ *
+ * The segments are read straight from read-only mapped buffers and the replay
+ * runs as fast as it is stepped. Records are fixed width and in time order, so
+ * {@link #seek(long)} finds a timestamp with a binary search instead of
+ * scanning from the start.
+ */
+public class TelemetryReplay {
+
+    private final Drivetrain drivetrain;
+    private final MappedByteBuffer[] segments;
+    private final long[] firstRecord; // global index of the first record of each segment
+    private final long recordCount;
+
+    private double tolerance = 1e-9;
+    private long position;
+    private long mismatches;
+    private double maxOutputError;
+
+    /**
+     * Open a recording.
+     *
+     * @param drivetrain the drivetrain to drive
+     * @param directory the directory of the recording
+     * @param prefix the name of the recording
+     * @throws IOException if a segment could not be read or is not a valid
+     * telemetry segment
+     */
+    public TelemetryReplay(Drivetrain drivetrain, File directory, String prefix)
+            throws IOException {
+        this.drivetrain = drivetrain;
+        List<MappedByteBuffer> buffers = new ArrayList<MappedByteBuffer>();
+        for (int i = 0;; i++) {
+            File file = segmentFile(directory, prefix, i);
+            if (!file.exists()) {
+                break;
+            }
+            RandomAccessFile in = new RandomAccessFile(file, "r");
+            try {
+                buffers.add(in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length()));
+            } finally {
+                in.close();
+            }
+        }
+        segments = buffers.toArray(new MappedByteBuffer[buffers.size()]);
+        firstRecord = new long[segments.length + 1];
+        for (int i = 0; i < segments.length; i++) {
+            MappedByteBuffer segment = segments[i];
+            if (segment.capacity() < HEADER_SIZE
+                    || segment.getInt(HEADER_MAGIC) != MAGIC
+                    || segment.getInt(HEADER_VERSION) != VERSION
+                    || segment.getInt(HEADER_RECORD_SIZE) != RECORD_SIZE) {
+                throw new IOException("Segment " + i + " of " + prefix + " is not a telemetry segment");
+            }
+            long count = segment.getLong(HEADER_COUNT);
+            if (HEADER_SIZE + count * RECORD_SIZE > segment.capacity()) {
+                throw new IOException("Segment " + i + " of " + prefix + " is truncated");
+            }
+            firstRecord[i + 1] = firstRecord[i] + count;
+        }
+        recordCount = firstRecord[segments.length];
+    }
+
+    /**
+     * Replay the next record.
+     *
+     * @return false if there are no more records
+     */
+    public boolean step() {
+        if (position >= recordCount) {
+            return false;
+        }
+        int segment = segmentOf(position);
+        MappedByteBuffer b = segments[segment];
+        int offset = HEADER_SIZE + (int) (position - firstRecord[segment]) * RECORD_SIZE;
+        MonitoredGearbox left = drivetrain.getLeftGearbox();
+        MonitoredGearbox right = drivetrain.getRightGearbox();
+
+        left.setSpeedFactor(b.getDouble(offset + LEFT + SPEED_FACTOR));
+        right.setSpeedFactor(b.getDouble(offset + RIGHT + SPEED_FACTOR));
+        drivetrain.arcade(b.getDouble(offset + MOVE), b.getDouble(offset + ROTATE));
+        loadEncoder(left.getEncoder(), b.getLong(offset + LEFT_RAW), b.getDouble(offset + LEFT + PERIOD));
+        loadEncoder(right.getEncoder(), b.getLong(offset + RIGHT_RAW), b.getDouble(offset + RIGHT + PERIOD));
+
+        double leftError = Math.abs(left.get() - b.getDouble(offset + LEFT + OUTPUT));
+        double rightError = Math.abs(right.get() - b.getDouble(offset + RIGHT + OUTPUT));
+        double error = Math.max(leftError, rightError);
+        if (error > maxOutputError) {
+            maxOutputError = error;
+        }
+        if (error > tolerance) {
+            mismatches++;
+        }
+        position++;
+        return true;
+    }
+
+    private static void loadEncoder(Encoder encoder, long ticks, double period) {
+        encoder.setTicks(ticks);
+        encoder.setPeriod(period);
+    }
+
+    /**
+     * Replay every remaining record.
+     *
+     * @return the number of records replayed
+     */
+    public long run() {
+        long start = position;
+        while (step()) {
+        }
+        return position - start;
+    }
+
+    /**
+     * Replay the records up to a given time.
+     *
+     * @param timeNanos the time to stop at; records at this time are not
+     * replayed
+     * @return the number of records replayed
+     */
+    public long runUntil(long timeNanos) {
+        long start = position;
+        while (position < recordCount && getTime(position) < timeNanos) {
+            step();
+        }
+        return position - start;
+    }
+
+    /**
+     * Move to the first record at or after the given time.
+     *
+     * @param timeNanos the time to move to
+     */
+    public void seek(long timeNanos) {
+        long low = 0, high = recordCount;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (getTime(middle) < timeNanos) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        position = low;
+    }
+
+    /**
+     * Move to a record by its index.
+     *
+     * @param index the index of the record, from 0 to getRecordCount()
+     */
+    public void seekRecord(long index) {
+        if (index < 0 || index > recordCount) {
+            throw new IndexOutOfBoundsException("Record " + index + " of " + recordCount);
+        }
+        position = index;
+    }
+
+    /**
+     * @param index the index of a record
+     * @return The time the record was taken at, in nanoseconds
+     */
+    public long getTime(long index) {
+        int segment = segmentOf(index);
+        return segments[segment].getLong(HEADER_SIZE
+                + (int) (index - firstRecord[segment]) * RECORD_SIZE + TIME);
+    }
+
+    private int segmentOf(long index) {
+        int low = 0, high = segments.length - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (firstRecord[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Set the largest difference between a replayed and a recorded output
+     * which is not counted as a mismatch.
+     *
+     * @param tolerance the tolerated difference
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Clear the comparison results.
+     */
+    public void resetComparison() {
+        mismatches = 0;
+        maxOutputError = 0;
+    }
+
+    /**
+     * @return The index of the next record to replay
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * @return The number of replayed records whose outputs differ from the
+     * recorded ones by more than the tolerance
+     */
+    public long getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * @return The largest difference between a replayed and a recorded output
+     */
+    public double getMaxOutputError() {
+        return maxOutputError;
+    }
+}
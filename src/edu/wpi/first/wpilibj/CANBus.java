@@ -0,0 +1,289 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+/**
+ * In-process stand-in for the CAN bus of the robot. Devices write frames into
+ * a mailbox per device, where a newer frame replaces one that was not sent
+ * yet. Every call to {@link #flush()} is one bus period: the waiting frames
+ * are sent in arbitration order (lowest identifier first) until the period is
+ * full, and the rest wait for the next period.
+ *
+ * The bus counts the bits it sends, so the utilization shows how close a
+ * configuration is to saturating the bus. Frame sizes are those of extended
+ * (29 bit identifier) frames without bit stuffing.
+ */
+public class CANBus {
+
+    /**
+     * Receives the frames sent to a device.
+     */
+    interface Receiver {
+
+        /**
+         * A frame addressed to this device was sent.
+         *
+         * @param data the payload
+         */
+        void receive(long data);
+
+        /**
+         * A sync frame was sent.
+         *
+         * @param syncGroups the groups to update
+         */
+        void sync(int syncGroups);
+    }
+
+    /**
+     * The default bit rate of the robot CAN bus, in bits per second.
+     */
+    public static final int kDefaultBitRate = 1000000;
+    /**
+     * Bits of an extended frame besides the data, including the interframe
+     * space.
+     */
+    public static final int kFrameOverheadBits = 67;
+    /**
+     * Length of the payload of a sync frame, in bytes.
+     */
+    public static final int kSyncFrameLength = 1;
+
+    private final int bitRate;
+    private final double period;
+    private final int bitsPerPeriod;
+
+    // mailboxes, by slot
+    private int size;
+    private int[] ids = new int[8];
+    private long[] data = new long[8];
+    private int[] lengths = new int[8];
+    private boolean[] pending = new boolean[8];
+    private Receiver[] receivers = new Receiver[8];
+    // slots sorted by arbitration identifier
+    private int[] order = new int[8];
+    private int pendingSync;
+
+    private long periods;
+    private long bitsSent;
+    private long framesSent;
+    private long framesDeferred;
+    private long framesOverwritten;
+    private long syncFramesSent;
+
+    /**
+     * Create a bus running at the default bit rate.
+     *
+     * @param period the time between two flushes, in seconds
+     */
+    public CANBus(double period) {
+        this(kDefaultBitRate, period);
+    }
+
+    /**
+     * Create a bus.
+     *
+     * @param bitRate the bit rate, in bits per second
+     * @param period the time between two flushes, in seconds
+     */
+    public CANBus(int bitRate, double period) {
+        if (bitRate <= 0 || period <= 0) {
+            throw new IllegalArgumentException("Bit rate and period must be positive");
+        }
+        this.bitRate = bitRate;
+        this.period = period;
+        this.bitsPerPeriod = (int) (bitRate * period);
+    }
+
+    /**
+     * Give a device a mailbox on the bus.
+     *
+     * @param id the arbitration identifier of the frames of the device
+     * @param receiver the device
+     * @return the slot of the mailbox
+     */
+    synchronized int attach(int id, Receiver receiver) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                throw new IllegalArgumentException("Identifier " + Integer.toHexString(id) + " is already in use");
+            }
+        }
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = copyOf(ids, capacity);
+            data = copyOf(data, capacity);
+            lengths = copyOf(lengths, capacity);
+            boolean[] newPending = new boolean[capacity];
+            System.arraycopy(pending, 0, newPending, 0, size);
+            pending = newPending;
+            Receiver[] newReceivers = new Receiver[capacity];
+            System.arraycopy(receivers, 0, newReceivers, 0, size);
+            receivers = newReceivers;
+            order = copyOf(order, capacity);
+        }
+        int slot = size++;
+        ids[slot] = id;
+        receivers[slot] = receiver;
+        int position = slot;
+        while (position > 0 && ids[order[position - 1]] > id) {
+            order[position] = order[position - 1];
+            position--;
+        }
+        order[position] = slot;
+        return slot;
+    }
+
+    private static int[] copyOf(int[] array, int length) {
+        int[] copy = new int[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    private static long[] copyOf(long[] array, int length) {
+        long[] copy = new long[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    /**
+     * Put a frame in the mailbox of a device.
+     *
+     * @param slot the slot of the mailbox
+     * @param payload the payload
+     * @param length the length of the payload, in bytes
+     */
+    synchronized void write(int slot, long payload, int length) {
+        if (pending[slot]) {
+            framesOverwritten++;
+        }
+        data[slot] = payload;
+        lengths[slot] = length;
+        pending[slot] = true;
+    }
+
+    /**
+     * Ask for a sync frame for the given groups, sent after the frames
+     * waiting in the mailboxes.
+     *
+     * @param syncGroups the groups to update
+     */
+    synchronized void requestSync(int syncGroups) {
+        pendingSync |= syncGroups & 0xff;
+    }
+
+    /**
+     * Run one bus period: send as many waiting frames as fit, in arbitration
+     * order, then the sync frame if every frame before it was sent.
+     */
+    public synchronized void flush() {
+        int budget = bitsPerPeriod;
+        boolean deferred = false;
+        for (int i = 0; i < size; i++) {
+            int slot = order[i];
+            if (!pending[slot]) {
+                continue;
+            }
+            int bits = frameBits(lengths[slot]);
+            if (bits > budget) {
+                deferred = true;
+                framesDeferred++;
+                continue;
+            }
+            budget -= bits;
+            pending[slot] = false;
+            bitsSent += bits;
+            framesSent++;
+            receivers[slot].receive(data[slot]);
+        }
+        if (pendingSync != 0 && !deferred) {
+            int bits = frameBits(kSyncFrameLength);
+            if (bits <= budget) {
+                int groups = pendingSync;
+                pendingSync = 0;
+                bitsSent += bits;
+                framesSent++;
+                syncFramesSent++;
+                for (int i = 0; i < size; i++) {
+                    receivers[i].sync(groups);
+                }
+            }
+        }
+        periods++;
+    }
+
+    /**
+     * @param length the length of the payload, in bytes
+     * @return The number of bits of a frame on the wire
+     */
+    public static int frameBits(int length) {
+        return kFrameOverheadBits + 8 * length;
+    }
+
+    /**
+     * @return The share of the bus time used since the bus was created, from
+     * 0 to 1
+     */
+    public synchronized double getUtilization() {
+        if (periods == 0) {
+            return 0;
+        }
+        return bitsSent / (bitRate * period * periods);
+    }
+
+    /**
+     * @return The number of frames with a payload of the given length that
+     * fit in one period
+     */
+    public int getCapacity(int length) {
+        return bitsPerPeriod / frameBits(length);
+    }
+
+    public synchronized long getFramesSent() {
+        return framesSent;
+    }
+
+    /**
+     * @return The number of times a waiting frame did not fit in its period
+     */
+    public synchronized long getFramesDeferred() {
+        return framesDeferred;
+    }
+
+    /**
+     * @return The number of frames replaced by a newer one before being sent
+     */
+    public synchronized long getFramesOverwritten() {
+        return framesOverwritten;
+    }
+
+    public synchronized long getSyncFramesSent() {
+        return syncFramesSent;
+    }
+
+    public synchronized long getBitsSent() {
+        return bitsSent;
+    }
+
+    public synchronized long getPeriods() {
+        return periods;
+    }
+
+    public double getPeriod() {
+        return period;
+    }
+
+    public int getBitRate() {
+        return bitRate;
+    }
+
+    /**
+     * @return The number of devices on the bus
+     */
+    public synchronized int getDeviceCount() {
+        return size;
+    }
+}
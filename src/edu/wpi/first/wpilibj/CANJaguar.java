@@ -0,0 +1,186 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+/**
+ * Texas Instruments Jaguar Speed Controller as a CAN device.
+ *
+ * Setting the speed encodes it into a frame in the mailbox of this device on
+ * its {@link CANBus}; the speed is applied when the bus sends the frame. A
+ * speed set with a sync group is held by the device until a sync frame for
+ * that group is sent, which {@link SyncGroup#update(byte)} asks the bus for.
+ */
+public class CANJaguar implements SpeedController, SyncGroup.Member, CANBus.Receiver {
+
+    /**
+     * Device type of motor controllers in the arbitration identifier.
+     */
+    public static final int kDeviceType = 2;
+    /**
+     * Manufacturer code of Texas Instruments in the arbitration identifier.
+     */
+    public static final int kManufacturer = 2;
+    /**
+     * API of the voltage set frame in the arbitration identifier.
+     */
+    public static final int kApiVoltageSet = 0x02 << 6;
+    /**
+     * Length of the payload of a voltage set frame, in bytes.
+     */
+    public static final int kSetFrameLength = 3;
+    private static final double kScale = 32767;
+
+    private final CANBus bus;
+    private final int deviceNumber;
+    private final int slot;
+    private boolean enabled = true;
+    private volatile double speed;
+    private double heldSpeed;
+    private int heldGroups;
+    private int stagedGroups;
+    private int joinedGroups;
+    private SyncGroup syncGroups;
+
+    /**
+     * Constructor.
+     *
+     * @param bus The bus the Jaguar is on.
+     * @param deviceNumber The address of the Jaguar on the CAN bus, from 0 to 63.
+     */
+    public CANJaguar(CANBus bus, int deviceNumber) {
+        if (bus == null) {
+            throw new NullPointerException("Given bus was null");
+        }
+        if (deviceNumber < 0 || deviceNumber > 63) {
+            throw new IllegalArgumentException("Device number must be between 0 and 63");
+        }
+        this.bus = bus;
+        this.deviceNumber = deviceNumber;
+        this.slot = bus.attach(getArbitrationId(), this);
+    }
+
+    /**
+     * @return The 29 bit arbitration identifier of the frames of this device
+     */
+    public int getArbitrationId() {
+        return kDeviceType << 24 | kManufacturer << 16 | kApiVoltageSet | deviceNumber;
+    }
+
+    /**
+     * Set the output set-point value.
+     *
+     * @param speed The speed value between -1.0 and 1.0 to set.
+     * @param syncGroup The update group to add this Set() to, pending SyncGroup.update().  If 0, or the Jaguar is not in a SyncGroup, update immediately.
+     */
+    public void set(double speed, byte syncGroup) {
+        if (!enabled) {
+            return;
+        }
+        int groups = syncGroups != null ? syncGroup & 0xff : 0;
+        bus.write(slot, encode(speed, groups), kSetFrameLength);
+        if (groups != 0) {
+            stagedGroups |= groups;
+            if ((joinedGroups & groups) != groups) {
+                syncGroups.join(this, syncGroup);
+                joinedGroups |= groups;
+            }
+        }
+    }
+
+    /**
+     * Set the output set-point value.
+     *
+     * @param speed The speed value between -1.0 and 1.0 to set.
+     */
+    public void set(double speed) {
+        set(speed, (byte) 0);
+    }
+
+    private static long encode(double speed, int groups) {
+        if (speed > 1) {
+            speed = 1;
+        } else if (speed < -1) {
+            speed = -1;
+        }
+        long value = Math.round(speed * kScale) & 0xffff;
+        return value | (long) groups << 16;
+    }
+
+    public boolean commitSync() {
+        if (stagedGroups == 0) {
+            return false;
+        }
+        bus.requestSync(stagedGroups);
+        stagedGroups = 0;
+        return true;
+    }
+
+    public void setSyncGroups(SyncGroup syncGroups) {
+        if (this.syncGroups != null) {
+            this.syncGroups.leave(this);
+        }
+        this.syncGroups = syncGroups;
+        joinedGroups = 0;
+    }
+
+    public SyncGroup getSyncGroups() {
+        return syncGroups;
+    }
+
+    public void receive(long data) {
+        double value = (short) (data & 0xffff) / kScale;
+        int groups = (int) (data >> 16) & 0xff;
+        if (groups == 0) {
+            speed = value;
+            heldGroups = 0;
+        } else {
+            heldSpeed = value;
+            heldGroups = groups;
+        }
+    }
+
+    public void sync(int syncGroups) {
+        if ((heldGroups & syncGroups) != 0) {
+            speed = heldSpeed;
+            heldGroups = 0;
+        }
+    }
+
+    /**
+     * Get the output applied by the Jaguar.
+     *
+     * @return The last speed the Jaguar received, between -1.0 and 1.0.
+     */
+    public double get() {
+        return speed;
+    }
+
+    /**
+     * Write out the PID value as seen in the PIDOutput base object.
+     *
+     * @param output Write out the value as was found in the PIDController
+     */
+    public void pidWrite(double output) {
+        set(output);
+    }
+
+    /**
+     * Stop the motor and ignore further speeds.
+     */
+    public void disable() {
+        set(0);
+        enabled = false;
+    }
+
+    public int getDeviceNumber() {
+        return deviceNumber;
+    }
+
+    public CANBus getBus() {
+        return bus;
+    }
+}
@@ -1,5 +1,92 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
 package edu.wpi.first.wpilibj;
 
+/**
+ * A digital input producing timestamped edges. The A, B and index inputs of
+ * an Encoder built from digital sources share an {@link EdgeQueue}; every
+ * change of level adds the new state of all of them to the queue, for the
+ * encoder to decode on another thread.
+ *
+ * The level is changed by a producer, such as a {@link QuadratureSimulator}
+ * or a recording replayed by {@link EdgeFile}. All the sources of one encoder
+ * must be changed from the same thread.
+ */
 public class DigitalSource {
 
+    private final int channel;
+    private volatile boolean level;
+    private volatile EdgeQueue queue;
+    // written before queue, so a producer which sees the queue sees the bit
+    private int bit;
+
+    /**
+     * Create a source which is not on a numbered channel.
+     */
+    public DigitalSource() {
+        this(-1);
+    }
+
+    /**
+     * @param channel the digital input channel
+     */
+    public DigitalSource(int channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Connect the source to the queue of an encoder. The queue is published
+     * after the bit, so the producer may already be changing the level.
+     *
+     * @param queue the queue to add the edges to
+     * @param bit the bit of this source in the states
+     */
+    synchronized void attach(EdgeQueue queue, int bit) {
+        if (this.queue != null) {
+            if (this.queue != queue || this.bit != bit) {
+                throw new IllegalArgumentException("Digital source is already used by another encoder");
+            }
+            return;
+        }
+        this.bit = bit;
+        this.queue = queue;
+    }
+
+    /**
+     * Change the level of the input, from the producer thread.
+     *
+     * @param level the new level
+     * @param timeNanos the time of the change
+     * @return false if the edge was dropped because the queue was full
+     */
+    public boolean set(boolean level, long timeNanos) {
+        if (level == this.level) {
+            return true;
+        }
+        this.level = level;
+        EdgeQueue queue = this.queue;
+        return queue == null || queue.setLevel(bit, level, timeNanos);
+    }
+
+    /**
+     * @return The current level of the input
+     */
+    public boolean get() {
+        return level;
+    }
+
+    public int getChannel() {
+        return channel;
+    }
+
+    /**
+     * @return The queue of the encoder using this source, or null
+     */
+    public EdgeQueue getQueue() {
+        return queue;
+    }
 }
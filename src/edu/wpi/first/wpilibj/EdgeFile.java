@@ -0,0 +1,89 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Recordings of encoder edges. A recording is a sequence of 9 byte records:
+ * the time of the edge in nanoseconds, then the state of the channels after
+ * it, with the bits of {@link EdgeQueue}.
+ */
+public class EdgeFile {
+
+    private EdgeFile() {
+    }
+
+    /**
+     * Write edges to a file.
+     *
+     * @param file the file to write
+     * @param times the time of every edge, in nanoseconds
+     * @param states the state of the channels after every edge
+     * @param length the number of edges
+     * @throws IOException if the file could not be written
+     */
+    public static void write(File file, long[] times, byte[] states, int length)
+            throws IOException {
+        DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            for (int i = 0; i < length; i++) {
+                out.writeLong(times[i]);
+                out.writeByte(states[i]);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Replay the edges of a file on digital sources, from the producer
+     * thread.
+     *
+     * @param file the file to read
+     * @param a the A channel
+     * @param b the B channel
+     * @param index the index channel, or null
+     * @return the number of edges replayed
+     * @throws IOException if the file could not be read
+     */
+    public static long replay(File file, DigitalSource a, DigitalSource b,
+            DigitalSource index) throws IOException {
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)));
+        long count = 0;
+        try {
+            while (true) {
+                long time;
+                try {
+                    time = in.readLong();
+                } catch (EOFException ex) {
+                    break;
+                }
+                int state = in.readByte();
+                a.set((state & EdgeQueue.A) != 0, time);
+                b.set((state & EdgeQueue.B) != 0, time);
+                if (index != null) {
+                    index.set((state & EdgeQueue.INDEX) != 0, time);
+                }
+                count++;
+            }
+        } finally {
+            in.close();
+        }
+        return count;
+    }
+}
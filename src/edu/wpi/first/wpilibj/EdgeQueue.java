@@ -0,0 +1,154 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Single producer, single consumer ring buffer of timestamped edges, from the
+ * digital inputs of an encoder to the thread decoding them. Each entry holds
+ * the time of the edge and the state of the channels right after it. The
+ * producer and the consumer each own one index and only publish it with an
+ * ordered write, so neither ever waits for the other: when the buffer is full
+ * the producer drops the edge and counts it.
+ *
+ * Exactly one thread may produce and one thread may consume.
+ */
+public class EdgeQueue {
+
+    /**
+     * Bit of the A channel in a state.
+     */
+    public static final int A = 2;
+    /**
+     * Bit of the B channel in a state.
+     */
+    public static final int B = 1;
+    /**
+     * Bit of the index channel in a state.
+     */
+    public static final int INDEX = 4;
+    /**
+     * The default number of edges the buffer can hold.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    private static final AtomicLongFieldUpdater<EdgeQueue> HEAD =
+            AtomicLongFieldUpdater.newUpdater(EdgeQueue.class, "head");
+    private static final AtomicLongFieldUpdater<EdgeQueue> TAIL =
+            AtomicLongFieldUpdater.newUpdater(EdgeQueue.class, "tail");
+
+    final int mask;
+    final long[] times;
+    final byte[] states;
+    private volatile long head;
+    private volatile long tail;
+    private volatile long dropped;
+
+    // owned by the producer
+    private long cachedTail;
+    private int levels;
+
+    /**
+     * Create a queue.
+     *
+     * @param capacity the number of edges the buffer holds, rounded up to a
+     * power of two
+     */
+    public EdgeQueue(int capacity) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.times = new long[size];
+        this.states = new byte[size];
+    }
+
+    /**
+     * Add an edge, from the producer thread.
+     *
+     * @param timeNanos the time of the edge
+     * @param state the state of the channels after the edge
+     * @return false if the buffer was full and the edge was dropped
+     */
+    public boolean offer(long timeNanos, int state) {
+        long h = head;
+        if (h - cachedTail > mask) {
+            cachedTail = tail;
+            if (h - cachedTail > mask) {
+                dropped++;
+                return false;
+            }
+        }
+        int index = (int) h & mask;
+        times[index] = timeNanos;
+        states[index] = (byte) state;
+        HEAD.lazySet(this, h + 1);
+        return true;
+    }
+
+    /**
+     * Change the level of one channel and add the edge, from the producer
+     * thread. Nothing is added if the level did not change.
+     *
+     * @param bit the bit of the channel
+     * @param level the new level
+     * @param timeNanos the time of the edge
+     * @return false if the buffer was full and the edge was dropped
+     */
+    boolean setLevel(int bit, boolean level, long timeNanos) {
+        int next = level ? levels | bit : levels & ~bit;
+        if (next == levels) {
+            return true;
+        }
+        levels = next;
+        return offer(timeNanos, next);
+    }
+
+    /**
+     * @return The index of the next edge to add, read by the consumer
+     */
+    long head() {
+        return head;
+    }
+
+    /**
+     * @return The index of the next edge to take, read by the consumer
+     */
+    long tail() {
+        return tail;
+    }
+
+    /**
+     * Give the entries before the given index back to the producer.
+     */
+    void release(long newTail) {
+        TAIL.lazySet(this, newTail);
+    }
+
+    /**
+     * @return The number of edges waiting
+     */
+    public int size() {
+        return (int) (head - tail);
+    }
+
+    /**
+     * @return The number of edges dropped because the buffer was full
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+}
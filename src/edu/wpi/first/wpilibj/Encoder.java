@@ -6,6 +6,9 @@
 /*----------------------------------------------------------------------------*/
 package edu.wpi.first.wpilibj;
 
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
 /**
  * Class to read quad encoders. Quadrature encoders are devices that count shaft
  * rotation and can sense direction. The output of the QuadEncoder class is an
@@ -15,9 +18,156 @@ package edu.wpi.first.wpilibj;
  * mounted such that forward movement generates negative values. Quadrature
  * encoders have two digital outputs, an A Channel and a B Channel that are out
  * of phase with each other to allow the FPGA to do direction sensing.
+ *
+ * The count and period may be updated from a counting thread while the control
+ * loop reads them, without locks on either side. The count is 64 bits wide so
+ * it cannot overflow on long runs. A single counting thread calls count(),
+ * countAt(), decode() and poll(); it is the only writer of the counted edges
+ * and the measured period, and brackets each update with a sequence number
+ * using ordered stores only; an index pulse in kReset mode resets the count
+ * the same way, without touching the rate window. Other threads adjust the
+ * count and the period through setTicks(), addTicks() and setPeriod(), which
+ * claim a second sequence number with a compare-and-set and bracket their
+ * update with it; they only ever wait for each other, never for the counting
+ * thread. A reader taking a
+ * {@link Snapshot} retries while either update is in progress, so the count
+ * and period it returns always belong together.
  */
 public class Encoder {
 
+    /**
+     * A consistent copy of the count and period of an Encoder. Reuse one
+     * instance per reader to avoid allocating every cycle.
+     */
+    public static class Snapshot {
+
+        /**
+         * The raw count
+         */
+        public long count;
+        /**
+         * The unscaled period of the most recent pulse, in seconds
+         */
+        public double period;
+        /**
+         * The distance per pulse when the snapshot was taken
+         */
+        public double distancePerPulse;
+        /**
+         * The 1x, 2x or 4x scale factor
+         */
+        public double decodingScaleFactor;
+        /**
+         * The rate as returned by Encoder.getRate()
+         */
+        public double rate;
+
+        /**
+         * @return The distance as returned by Encoder.getDistance()
+         */
+        public double getDistance() {
+            return count * decodingScaleFactor * distancePerPulse;
+        }
+
+        /**
+         * @return The rate as returned by Encoder.getRate()
+         */
+        public double getRate() {
+            return rate;
+        }
+    }
+
+    /**
+     * How the rate of the encoder is measured.
+     */
+    public static class RateMode {
+
+        /**
+         * The integer value representing this enumeration
+         */
+        public final int value;
+        static final int kPeriod_val = 0;
+        static final int kMovingAverage_val = 1;
+        static final int kRegression_val = 2;
+        /**
+         * Use the period of the most recent pulse
+         */
+        public static final RateMode kPeriod = new RateMode(kPeriod_val);
+        /**
+         * Average the rate between the oldest and newest counts of a window
+         */
+        public static final RateMode kMovingAverage = new RateMode(kMovingAverage_val);
+        /**
+         * Fit a line through the counts of a window
+         */
+        public static final RateMode kRegression = new RateMode(kRegression_val);
+
+        private RateMode(int value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * What the rising edge of the index channel does.
+     */
+    public static class IndexMode {
+
+        /**
+         * The integer value representing this enumeration
+         */
+        public final int value;
+        static final int kNone_val = 0;
+        static final int kLatch_val = 1;
+        static final int kReset_val = 2;
+        /**
+         * Ignore the index channel
+         */
+        public static final IndexMode kNone = new IndexMode(kNone_val);
+        /**
+         * Record the time and count of every index pulse
+         */
+        public static final IndexMode kLatch = new IndexMode(kLatch_val);
+        /**
+         * Record the time and count of every index pulse, then reset the
+         * count to zero
+         */
+        public static final IndexMode kReset = new IndexMode(kReset_val);
+
+        private IndexMode(int value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * The number of index pulses kept by the latch buffer.
+     */
+    public static final int kLatchCapacity = 64;
+
+    private static final AtomicLongFieldUpdater<Encoder> COUNTED =
+            AtomicLongFieldUpdater.newUpdater(Encoder.class, "counted");
+    private static final AtomicLongFieldUpdater<Encoder> MEASURED_PERIOD =
+            AtomicLongFieldUpdater.newUpdater(Encoder.class, "measuredPeriodBits");
+    private static final AtomicLongFieldUpdater<Encoder> ESTIMATED_RATE =
+            AtomicLongFieldUpdater.newUpdater(Encoder.class, "estimatedRateBits");
+    private static final AtomicLongFieldUpdater<Encoder> MEASURED_AT =
+            AtomicLongFieldUpdater.newUpdater(Encoder.class, "measuredAt");
+    private static final AtomicLongFieldUpdater<Encoder> COUNT_SEQUENCE =
+            AtomicLongFieldUpdater.newUpdater(Encoder.class, "countSequence");
+    private static final AtomicLongFieldUpdater<Encoder> LAST_COUNT_TIME =
+            AtomicLongFieldUpdater.newUpdater(Encoder.class, "lastCountTime");
+    private static final AtomicLongFieldUpdater<Encoder> RATE_GENERATION =
+            AtomicLongFieldUpdater.newUpdater(Encoder.class, "rateGeneration");
+    private static final AtomicLongFieldUpdater<Encoder> INDEX_OFFSET =
+            AtomicLongFieldUpdater.newUpdater(Encoder.class, "indexOffset");
+    private static final AtomicLongFieldUpdater<Encoder> ADJUST_SEQUENCE =
+            AtomicLongFieldUpdater.newUpdater(Encoder.class, "adjustSequence");
+
+    /**
+     * The default time without pulses after which a window rate is 0, in
+     * seconds.
+     */
+    public static final double kDefaultMaxPeriod = 0.5;
+
     public double constant = 1;
 
     public static class EncodingType {
@@ -47,14 +197,39 @@ public class Encoder {
         }
     }
     private boolean enabled;
-    private int ticksCountValue; // FIXME: As I could stand, this is what it
-    // used to be.
-    private EncodingType encodingType;
+    private RateMode rateMode = RateMode.kPeriod;
+    private volatile RateWindow rateWindow;
+    private EncodingType encodingType = EncodingType.k1X;
+    private QuadratureDecoder decoder = new QuadratureDecoder(EncodingType.k1X);
     private double distancePerPulse; // distance of travel for each encoder
     // tick
     private double decodingScaleFactor = 1;
     private boolean reverseDirection;
-    private double measuredPeriod;
+    private volatile double maxPeriod = kDefaultMaxPeriod;
+    private volatile TimeSource timeSource = TimeSource.SYSTEM;
+    private EdgeQueue edgeQueue;
+    private volatile IndexMode indexMode = IndexMode.kNone;
+    private int lastIndexLevel;
+    private final AtomicLongArray latchTimes = new AtomicLongArray(kLatchCapacity);
+    private final AtomicLongArray latchCounts = new AtomicLongArray(kLatchCapacity);
+    private volatile long latchTotal;
+
+    // written by the counting thread only, with ordered stores
+    private volatile long counted;
+    private volatile long measuredPeriodBits;
+    private volatile long estimatedRateBits;
+    private volatile long measuredAt;
+    private volatile long countSequence;
+    private volatile long lastCountTime = Long.MIN_VALUE;
+    private volatile long rateGeneration;
+    private volatile long indexOffset;
+
+    // written by the other threads, between beginAdjust() and endAdjust()
+    private volatile long tickOffset;
+    private volatile double assignedPeriod;
+    private volatile long assignedAt = -1;
+    private volatile long windowResets;
+    private volatile long adjustSequence;
 
     /**
      * Common initialization code for Encoders. This code allocates resources
@@ -216,7 +391,7 @@ public class Encoder {
         if (encodingType == null) {
             throw new NullPointerException("Given encoding type was null");
         }
-        this.encodingType = encodingType;
+        setEncodingType(encodingType);
         initEncoder(reverseDirection);
     }
 
@@ -269,6 +444,7 @@ public class Encoder {
         if (bSource == null) {
             throw new NullPointerException("Digital Source B was null");
         }
+        attachSources(aSource, bSource, null);
         initEncoder(reverseDirection);
     }
 
@@ -308,13 +484,14 @@ public class Encoder {
         if (encodingType == null) {
             throw new NullPointerException("Given encoding type was null");
         }
-        this.encodingType = encodingType;
+        setEncodingType(encodingType);
         if (aSource == null) {
             throw new NullPointerException("Digital Source A was null");
         }
         if (bSource == null) {
             throw new NullPointerException("Digital Source B was null");
         }
+        attachSources(aSource, bSource, null);
         initEncoder(reverseDirection);
     }
 
@@ -322,7 +499,9 @@ public class Encoder {
      * Encoder constructor. Construct a Encoder given a and b channels as
      * digital inputs. This is used in the case where the digital inputs are
      * shared. The Encoder class will not allocate the digital inputs and assume
-     * that they already are counted.
+     * that they already are counted. The encoder uses 4X decoding, so every
+     * edge of the a and b channels is counted; another encoding type can be
+     * selected with setEncodingType() before counting starts.
      *
      * @param aSource The source that should be used for the a channel.
      * @param bSource the source that should be used for the b channel.
@@ -339,6 +518,8 @@ public class Encoder {
         if (bSource == null) {
             throw new NullPointerException("Digital Source B was null");
         }
+        attachSources(aSource, bSource, indexSource);
+        setEncodingType(EncodingType.k4X);
         initEncoder(reverseDirection);
     }
 
@@ -346,7 +527,9 @@ public class Encoder {
      * Encoder constructor. Construct a Encoder given a and b channels as
      * digital inputs. This is used in the case where the digital inputs are
      * shared. The Encoder class will not allocate the digital inputs and assume
-     * that they already are counted.
+     * that they already are counted. The encoder uses 4X decoding, so every
+     * edge of the a and b channels is counted; another encoding type can be
+     * selected with setEncodingType() before counting starts.
      *
      * @param aSource The source that should be used for the a channel.
      * @param bSource the source that should be used for the b channel.
@@ -357,6 +540,21 @@ public class Encoder {
         this(aSource, bSource, indexSource, false);
     }
 
+    /**
+     * Give the digital sources of the encoder a queue to add their edges to,
+     * for poll() to decode.
+     */
+    private void attachSources(DigitalSource aSource, DigitalSource bSource,
+            DigitalSource indexSource) {
+        EdgeQueue queue = new EdgeQueue(EdgeQueue.DEFAULT_CAPACITY);
+        aSource.attach(queue, EdgeQueue.A);
+        bSource.attach(queue, EdgeQueue.B);
+        if (indexSource != null) {
+            indexSource.attach(queue, EdgeQueue.INDEX);
+        }
+        edgeQueue = queue;
+    }
+
     /**
      * Enables counting
      */
@@ -373,12 +571,68 @@ public class Encoder {
 
     /**
      * Gets the raw value from the encoder. The raw value is the actual count
-     * unscaled by the 1x, 2x, or 4x scale factor.
+     * unscaled by the 1x, 2x, or 4x scale factor. A count outside the int
+     * range is clamped to it; use getRawLong() for the full count.
      *
      * @return Current raw count from the encoder
      */
     public int getRaw() {
-        return ticksCountValue;
+        long raw = getRawLong();
+        if (raw > Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        } else if (raw < Integer.MIN_VALUE) {
+            return Integer.MIN_VALUE;
+        }
+        return (int) raw;
+    }
+
+    /**
+     * Gets the raw value from the encoder as a 64 bit count.
+     *
+     * @return Current raw count from the encoder
+     */
+    public long getRawLong() {
+        long adjusted, sequence, raw;
+        do {
+            adjusted = adjustSequence;
+            sequence = countSequence;
+            raw = counted + tickOffset + indexOffset;
+        } while (((sequence | adjusted) & 1) != 0
+                || countSequence != sequence || adjustSequence != adjusted);
+        return raw;
+    }
+
+    /**
+     * Copy the count and period, as they were at a single point in time, into
+     * the given snapshot.
+     *
+     * @param snapshot the snapshot to fill
+     * @return the given snapshot
+     */
+    public Snapshot getSnapshot(Snapshot snapshot) {
+        long adjusted, sequence, generation, resets, lastCount;
+        boolean assigned;
+        do {
+            adjusted = adjustSequence;
+            sequence = countSequence;
+            snapshot.count = counted + tickOffset + indexOffset;
+            assigned = assignedAt >= measuredAt;
+            snapshot.period = assigned ? assignedPeriod
+                    : Double.longBitsToDouble(measuredPeriodBits);
+            snapshot.rate = Double.longBitsToDouble(estimatedRateBits);
+            generation = rateGeneration;
+            resets = windowResets;
+            lastCount = lastCountTime;
+        } while (((sequence | adjusted) & 1) != 0
+                || countSequence != sequence || adjustSequence != adjusted);
+        snapshot.distancePerPulse = distancePerPulse;
+        snapshot.decodingScaleFactor = getDecodingScaleFactor();
+        if (rateMode == RateMode.kPeriod || assigned) {
+            snapshot.rate = rateFromPeriod(snapshot.period / snapshot.decodingScaleFactor);
+        } else {
+            snapshot.rate = windowRate(snapshot.rate, generation, resets, lastCount);
+        }
+        return snapshot;
     }
 
     /**
@@ -389,7 +643,7 @@ public class Encoder {
      * scale factor.
      */
     public int get() {
-        return (int) (getRaw() * getDecodingScaleFactor());
+        return (int) (getRawLong() * getDecodingScaleFactor());
     }
 
     /**
@@ -397,7 +651,7 @@ public class Encoder {
      * the encoder.
      */
     public void reset() {
-        ticksCountValue = 0;
+        setTicks(0);
     }
 
     /**
@@ -411,7 +665,9 @@ public class Encoder {
      * @return Period in seconds of the most recent pulse.
      */
     public double getPeriod() {
-        return measuredPeriod / getDecodingScaleFactor();
+        double period = assignedAt >= measuredAt ? assignedPeriod
+                : Double.longBitsToDouble(measuredPeriodBits);
+        return period / getDecodingScaleFactor();
     }
 
     /**
@@ -452,11 +708,11 @@ public class Encoder {
      * from setDistancePerPulse().
      */
     public double getDistance() {
-        return getRaw() * getDecodingScaleFactor() * distancePerPulse;
+        return getRawLong() * getDecodingScaleFactor() * distancePerPulse;
     }
 
     public void addDistance(double d) {
-        addTicks((int) (d / distancePerPulse / getDecodingScaleFactor()));
+        addTicks((long) (d / distancePerPulse / getDecodingScaleFactor()));
     }
 
     public void setDistance(double d) {
@@ -465,17 +721,89 @@ public class Encoder {
     }
 
     public void setRate(double rate) {
-        setPeriod(distancePerPulse / rate);
+        setPeriod(rate == 0 ? Double.POSITIVE_INFINITY
+                : distancePerPulse / rate * getDecodingScaleFactor());
     }
 
     /**
      * Get the current rate of the encoder. Units are distance per second as
-     * scaled by the value from setDistancePerPulse().
+     * scaled by the value from setDistancePerPulse(). In the window modes a
+     * rate or period set after the last counted pulse takes precedence over
+     * the window estimate, and the rate is 0 once no pulse was counted for
+     * the max period.
      *
      * @return The current rate of the encoder.
      */
     public double getRate() {
-        return distancePerPulse / getPeriod();
+        if (rateMode == RateMode.kPeriod || assignedAt >= measuredAt) {
+            return rateFromPeriod(getPeriod());
+        }
+        return windowRate(Double.longBitsToDouble(estimatedRateBits), rateGeneration,
+                windowResets, lastCountTime);
+    }
+
+    /**
+     * Scale a window estimate, or give 0 if it was made before the last
+     * setTicks() or is older than the max period.
+     */
+    private double windowRate(double rate, long generation, long resets, long lastCount) {
+        if (generation != resets || lastCount == Long.MIN_VALUE
+                || timeSource.nanoTime() - lastCount > maxPeriod * 1e9) {
+            return 0;
+        }
+        return rate * getDecodingScaleFactor() * distancePerPulse;
+    }
+
+    /**
+     * Set how long the window modes keep reporting their estimate after the
+     * last counted pulse, measured on the time source of the encoder.
+     *
+     * @param maxPeriod the time in seconds, {@link #kDefaultMaxPeriod} by
+     * default
+     */
+    public void setMaxPeriod(double maxPeriod) {
+        if (!(maxPeriod > 0)) {
+            throw new IllegalArgumentException("Max period must be positive");
+        }
+        this.maxPeriod = maxPeriod;
+    }
+
+    public double getMaxPeriod() {
+        return maxPeriod;
+    }
+
+    private double rateFromPeriod(double period) {
+        if (period == 0 || Double.isNaN(period)) {
+            return 0;
+        }
+        return distancePerPulse / period;
+    }
+
+    /**
+     * Select how getRate() measures the rate. The window modes estimate the
+     * rate from the last counts given to {@link #countAt(long, long)}, which
+     * is much less noisy than a single period at low speed. Select the mode
+     * before the counting thread starts.
+     *
+     * @param rateMode kPeriod, kMovingAverage or kRegression
+     * @param windowSize the number of counts in the window, ignored for
+     * kPeriod
+     */
+    public void setRateMode(RateMode rateMode, int windowSize) {
+        if (rateMode == null) {
+            throw new NullPointerException("Given rate mode was null");
+        }
+        this.rateMode = rateMode;
+        if (rateMode == RateMode.kPeriod) {
+            rateWindow = null;
+        } else {
+            rateWindow = new RateWindow(windowSize, rateMode == RateMode.kRegression);
+        }
+        ESTIMATED_RATE.lazySet(this, 0);
+    }
+
+    public RateMode getRateMode() {
+        return rateMode;
     }
 
     /**
@@ -521,22 +849,381 @@ public class Encoder {
         return encodingType;
     }
 
+    /**
+     * Select which edges are counted. The decoding scale factor follows: 1
+     * for k1X, 0.5 for k2X and 0.25 for k4X. The encoder counts with 1X
+     * decoding unless told otherwise.
+     *
+     * @param encodingType either k1X, k2X, or k4X
+     */
     public void setEncodingType(EncodingType encodingType) {
+        if (encodingType == null) {
+            throw new NullPointerException("Given encoding type was null");
+        }
+        QuadratureDecoder newDecoder = new QuadratureDecoder(encodingType);
+        newDecoder.setState(decoder.getState());
         this.encodingType = encodingType;
+        this.decoder = newDecoder;
+        this.decodingScaleFactor = newDecoder.getDecodingScaleFactor();
+    }
+
+    /**
+     * Decode a buffer of edges of the A and B channels from the counting
+     * thread, with the QuadratureDecoder of the encoding type, and count the
+     * result.
+     *
+     * @param states the state of the channels after each edge, with A in bit
+     * 1 and B in bit 0
+     * @param offset the index of the first edge
+     * @param length the number of edges
+     * @param timeNanos the time of the last edge, in nanoseconds
+     * @return the change of the raw count
+     */
+    public int decode(byte[] states, int offset, int length, long timeNanos) {
+        return decode(states, null, offset, length, timeNanos);
+    }
+
+    /**
+     * Decode a buffer of edges, with the time of each one. Every edge which
+     * changes the count is counted at its own time, so the period and the
+     * rate window see the real spacing of the edges. With an index mode, each
+     * rising edge of the index channel (bit 2 of the states) is latched at
+     * its own time.
+     *
+     * @param states the state of the channels after each edge, with A in bit
+     * 1, B in bit 0 and the index in bit 2
+     * @param times the time of each edge, in nanoseconds
+     * @param offset the index of the first edge
+     * @param length the number of edges
+     * @return the change of the raw count
+     */
+    public int decode(byte[] states, long[] times, int offset, int length) {
+        return decode(states, times, offset, length, times[offset + length - 1]);
+    }
+
+    private int decode(byte[] states, long[] times, int offset, int length, long timeNanos) {
+        if (length <= 0) {
+            return 0;
+        }
+        if (times != null) {
+            return decodeEdges(states, times, offset, length);
+        }
+        if (indexMode == IndexMode.kNone) {
+            // keep the level, so selecting an index mode later does not see
+            // an index which was already high as a new pulse
+            lastIndexLevel = states[offset + length - 1] & EdgeQueue.INDEX;
+            return countDecoded(decoder.decode(states, offset, length), timeNanos);
+        }
+        int delta = 0;
+        int start = offset;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            int level = states[i] & EdgeQueue.INDEX;
+            if (level != 0 && lastIndexLevel == 0) {
+                delta += countDecoded(decoder.decode(states, start, i + 1 - start), timeNanos);
+                indexPulse(timeNanos);
+                start = i + 1;
+            }
+            lastIndexLevel = level;
+        }
+        if (start < end) {
+            delta += countDecoded(decoder.decode(states, start, end - start), timeNanos);
+        }
+        return delta;
+    }
+
+    private int decodeEdges(byte[] states, long[] times, int offset, int length) {
+        boolean index = indexMode != IndexMode.kNone;
+        int delta = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int step = decoder.decode(states, i, 1);
+            if (step != 0) {
+                delta += countDecoded(step, times[i]);
+            }
+            int level = states[i] & EdgeQueue.INDEX;
+            if (index && level != 0 && lastIndexLevel == 0) {
+                indexPulse(times[i]);
+            }
+            lastIndexLevel = level;
+        }
+        return delta;
+    }
+
+    private int countDecoded(int delta, long timeNanos) {
+        if (reverseDirection) {
+            delta = -delta;
+        }
+        countAt(delta, timeNanos);
+        return delta;
+    }
+
+    /**
+     * Latch the count at an index pulse, and reset it in kReset mode. The
+     * reset is an offset owned by the counting thread, so it takes no lock
+     * and the rate window keeps counting across it.
+     */
+    private void indexPulse(long timeNanos) {
+        long raw = counted + tickOffset + indexOffset;
+        long total = latchTotal;
+        int slot = (int) (total % kLatchCapacity);
+        latchTimes.lazySet(slot, timeNanos);
+        latchCounts.lazySet(slot, raw);
+        latchTotal = total + 1;
+        if (indexMode == IndexMode.kReset) {
+            beginCount();
+            INDEX_OFFSET.lazySet(this, indexOffset - raw);
+            endCount();
+        }
+    }
+
+    /**
+     * Select what the index channel does. Select the mode before the
+     * counting thread starts.
+     *
+     * @param indexMode kNone, kLatch or kReset
+     */
+    public void setIndexMode(IndexMode indexMode) {
+        if (indexMode == null) {
+            throw new NullPointerException("Given index mode was null");
+        }
+        this.indexMode = indexMode;
+    }
+
+    public IndexMode getIndexMode() {
+        return indexMode;
+    }
+
+    /**
+     * @return The number of index pulses latched since the encoder was created
+     */
+    public long getLatchTotal() {
+        return latchTotal;
     }
 
-    public void addTicks(int ticks) {
+    /**
+     * Copy the most recent index pulses, newest first. Pulses overwritten
+     * by the counting thread while copying are left out.
+     *
+     * @param times filled with the time of each pulse, in nanoseconds
+     * @param counts filled with the raw count at each pulse, before any reset
+     * @return the number of pulses copied
+     */
+    public int getLatches(long[] times, long[] counts) {
+        long total = latchTotal;
+        int n = (int) Math.min(Math.min(times.length, counts.length), Math.min(total, kLatchCapacity));
+        for (int i = 0; i < n; i++) {
+            int slot = (int) ((total - 1 - i) % kLatchCapacity);
+            times[i] = latchTimes.get(slot);
+            counts[i] = latchCounts.get(slot);
+        }
+        // pulses older than this may have been overwritten meanwhile
+        long oldestValid = latchTotal - kLatchCapacity + 1;
+        long valid = total - oldestValid;
+        return valid < n ? (int) Math.max(valid, 0) : n;
+    }
+
+    /**
+     * Decode the edges the digital sources of the encoder added to its queue
+     * since the last poll, from the counting thread. Edges are decoded in
+     * place, in at most two runs when the ring buffer wraps around, and each
+     * is counted at the time it was queued with.
+     *
+     * @return the number of edges decoded
+     */
+    public int poll() {
+        EdgeQueue queue = edgeQueue;
+        if (queue == null) {
+            return 0;
+        }
+        long tail = queue.tail();
+        long head = queue.head();
+        int count = (int) (head - tail);
+        if (count == 0) {
+            return 0;
+        }
+        int start = (int) tail & queue.mask;
+        int first = Math.min(count, queue.getCapacity() - start);
+        decode(queue.states, queue.times, start, first);
+        if (first < count) {
+            decode(queue.states, queue.times, 0, count - first);
+        }
+        queue.release(head);
+        return count;
+    }
+
+    /**
+     * @return The queue the digital sources of the encoder add their edges
+     * to, or null if the encoder was not built from digital sources
+     */
+    public EdgeQueue getEdgeQueue() {
+        return edgeQueue;
+    }
+
+    /**
+     * @return The number of edges which skipped a state of the channels
+     */
+    public long getDecodingErrors() {
+        return decoder.getErrors();
+    }
+
+    public void addTicks(long ticks) {
         if (ticks < 0) {
             ticks = 0;
         }
-        setTicks(ticksCountValue + ticks);
+        beginAdjust();
+        tickOffset += ticks;
+        endAdjust();
     }
 
-    public void setTicks(int ticks) {
-        this.ticksCountValue = ticks;
+    /**
+     * Set the raw count. Edges counted while the count is set may be counted
+     * before or after it, and an index reset meanwhile may be lost. The
+     * window rate is 0 until the counting thread has started a new window.
+     *
+     * @param ticks the new raw count
+     */
+    public void setTicks(long ticks) {
+        beginAdjust();
+        tickOffset = ticks - countedTotal();
+        // the counting thread owns the rate window and clears it
+        windowResets++;
+        endAdjust();
     }
 
+    /**
+     * Set the period, which stands until the counting thread measures a new
+     * one.
+     *
+     * @param period the unscaled period of the most recent pulse, in seconds
+     */
     public void setPeriod(double period) {
-        this.measuredPeriod = period;
+        beginAdjust();
+        assignedPeriod = period;
+        assignedAt = countSequence;
+        endAdjust();
+    }
+
+    /**
+     * Start an update from a thread other than the counting thread, by making
+     * the adjust sequence odd. Another adjusting thread may have to be waited
+     * for; the counting thread never is.
+     */
+    private void beginAdjust() {
+        long sequence;
+        do {
+            sequence = adjustSequence;
+        } while ((sequence & 1) != 0 || !ADJUST_SEQUENCE.compareAndSet(this, sequence, sequence + 1));
+    }
+
+    private void endAdjust() {
+        ADJUST_SEQUENCE.lazySet(this, adjustSequence + 1);
+    }
+
+    /**
+     * The counted edges with the index resets, read as one update of the
+     * counting thread left them.
+     */
+    private long countedTotal() {
+        long sequence, total;
+        do {
+            sequence = countSequence;
+            total = counted + indexOffset;
+        } while ((sequence & 1) != 0 || countSequence != sequence);
+        return total;
+    }
+
+    /**
+     * Start an update from the counting thread. Ordered stores are enough as
+     * it is the only thread writing these fields.
+     */
+    private void beginCount() {
+        COUNT_SEQUENCE.lazySet(this, countSequence + 1);
+    }
+
+    private void endCount() {
+        COUNT_SEQUENCE.lazySet(this, countSequence + 1);
+    }
+
+    /**
+     * Store a period measured by the counting thread, inside an update.
+     */
+    private void measured(double period) {
+        MEASURED_PERIOD.lazySet(this, Double.doubleToRawLongBits(period));
+        MEASURED_AT.lazySet(this, countSequence + 1);
+    }
+
+    /**
+     * Count pulses from the counting thread. The count and the period are
+     * updated together, so a snapshot sees both or neither.
+     *
+     * @param ticks the number of pulses to add, negative when turning
+     * backwards
+     * @param period the period of the most recent pulse, in seconds
+     */
+    public void count(long ticks, double period) {
+        beginCount();
+        COUNTED.lazySet(this, counted + ticks);
+        measured(period);
+        endCount();
+    }
+
+    /**
+     * Count pulses from the counting thread, with the time they were seen at.
+     * The period becomes the time since the previous call divided by the
+     * pulses counted, and the rate window, if any, is updated.
+     *
+     * @param ticks the number of pulses to add, negative when turning
+     * backwards
+     * @param timeNanos the time the pulses were seen at, in nanoseconds
+     */
+    public void countAt(long ticks, long timeNanos) {
+        beginCount();
+        long count = counted + ticks;
+        COUNTED.lazySet(this, count);
+        if (ticks != 0 && lastCountTime != Long.MIN_VALUE) {
+            measured((timeNanos - lastCountTime) * 1e-9 / ticks);
+        }
+        if (ticks != 0) {
+            LAST_COUNT_TIME.lazySet(this, timeNanos);
+        }
+        RateWindow window = rateWindow;
+        if (window != null) {
+            long resets = windowResets;
+            if (resets != rateGeneration) {
+                window.clear();
+                RATE_GENERATION.lazySet(this, resets);
+            }
+            window.add(timeNanos, count);
+            ESTIMATED_RATE.lazySet(this, Double.doubleToRawLongBits(window.getRate()));
+            MEASURED_AT.lazySet(this, countSequence + 1);
+        }
+        endCount();
+    }
+
+    /**
+     * Count pulses from the counting thread, seen now according to the time
+     * source of the encoder.
+     *
+     * @param ticks the number of pulses to add, negative when turning
+     * backwards
+     */
+    public void countNow(long ticks) {
+        countAt(ticks, timeSource.nanoTime());
+    }
+
+    /**
+     * Set the clock countNow() reads the time from.
+     *
+     * @param timeSource the clock, TimeSource.SYSTEM by default
+     */
+    public void setTimeSource(TimeSource timeSource) {
+        if (timeSource == null) {
+            throw new NullPointerException("Given time source was null");
+        }
+        this.timeSource = timeSource;
+    }
+
+    public TimeSource getTimeSource() {
+        return timeSource;
     }
 }
@@ -0,0 +1,370 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+/**
+ * Class implements a PID Control Loop.
+ *
+ * Reads the given PIDSource, takes care of the integral calculations and writes
+ * the given PIDOutput. Unlike the robot version this controller does not own a
+ * thread: {@link #calculate()} is called once per period, usually by a
+ * {@link PIDExecutor} stepping many controllers in the same tick. The
+ * calculation does not allocate and does not lock; gains and setpoint may be
+ * changed from other threads at any time.
+ */
+public class PIDController {
+
+    /**
+     * The default period between calculations, in seconds.
+     */
+    public static final double kDefaultPeriod = .05;
+
+    private volatile double m_P;
+    private volatile double m_I;
+    private volatile double m_D;
+    private volatile double m_F;
+    private volatile double m_maximumOutput = 1.0;
+    private volatile double m_minimumOutput = -1.0;
+    private volatile double m_maximumInput = 0.0;
+    private volatile double m_minimumInput = 0.0;
+    private volatile boolean m_continuous = false;
+    private volatile boolean m_enabled = false;
+    private volatile double m_setpoint = 0.0;
+    private volatile double m_tolerance = 0.05;
+    private volatile double m_period;
+    private volatile boolean m_resetRequested = false;
+    private volatile boolean m_zeroRequested = false;
+
+    // state owned by the thread calling calculate()
+    private double m_prevError = 0.0;
+    private double m_totalError = 0.0;
+    private volatile double m_error = 0.0;
+    private volatile double m_result = 0.0;
+
+    private final PIDSource m_pidInput;
+    private final PIDOutput m_pidOutput;
+
+    /**
+     * Allocate a PID object with the given constants for P, I, D and F
+     *
+     * @param Kp the proportional coefficient
+     * @param Ki the integral coefficient
+     * @param Kd the derivative coefficient
+     * @param Kf the feed forward term
+     * @param source The PIDSource object that is used to get values
+     * @param output The PIDOutput object that is set to the output percentage
+     * @param period the loop time for doing calculations, in seconds.
+     */
+    public PIDController(double Kp, double Ki, double Kd, double Kf,
+            PIDSource source, PIDOutput output, double period) {
+        if (source == null) {
+            throw new NullPointerException("Null PIDSource was given");
+        }
+        if (output == null) {
+            throw new NullPointerException("Null PIDOutput was given");
+        }
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        m_P = Kp;
+        m_I = Ki;
+        m_D = Kd;
+        m_F = Kf;
+        m_pidInput = source;
+        m_pidOutput = output;
+        m_period = period;
+    }
+
+    /**
+     * Allocate a PID object with the given constants for P, I, D and F, using
+     * the default period.
+     *
+     * @param Kp the proportional coefficient
+     * @param Ki the integral coefficient
+     * @param Kd the derivative coefficient
+     * @param Kf the feed forward term
+     * @param source The PIDSource object that is used to get values
+     * @param output The PIDOutput object that is set to the output percentage
+     */
+    public PIDController(double Kp, double Ki, double Kd, double Kf,
+            PIDSource source, PIDOutput output) {
+        this(Kp, Ki, Kd, Kf, source, output, kDefaultPeriod);
+    }
+
+    /**
+     * Allocate a PID object with the given constants for P, I and D, using the
+     * default period.
+     *
+     * @param Kp the proportional coefficient
+     * @param Ki the integral coefficient
+     * @param Kd the derivative coefficient
+     * @param source The PIDSource object that is used to get values
+     * @param output The PIDOutput object that is set to the output percentage
+     */
+    public PIDController(double Kp, double Ki, double Kd,
+            PIDSource source, PIDOutput output) {
+        this(Kp, Ki, Kd, 0.0, source, output, kDefaultPeriod);
+    }
+
+    /**
+     * Read the input, calculate the output accordingly, and write to the
+     * output. This should be called once every period. While the controller
+     * is disabled only the zero output asked for by {@link #disable()} is
+     * written.
+     */
+    public void calculate() {
+        if (!m_enabled) {
+            if (m_zeroRequested) {
+                m_zeroRequested = false;
+                m_pidOutput.pidWrite(0);
+            }
+            return;
+        }
+        if (m_resetRequested) {
+            m_resetRequested = false;
+            m_prevError = 0;
+            m_totalError = 0;
+        }
+        double input = m_pidInput.pidGet();
+        double setpoint = m_setpoint;
+        double error = setpoint - input;
+        if (m_continuous) {
+            double range = m_maximumInput - m_minimumInput;
+            if (Math.abs(error) > range / 2) {
+                if (error > 0) {
+                    error = error - range;
+                } else {
+                    error = error + range;
+                }
+            }
+        }
+
+        double P = m_P, I = m_I, D = m_D, F = m_F;
+        double maximumOutput = m_maximumOutput, minimumOutput = m_minimumOutput;
+        double period = m_period;
+
+        if (I != 0) {
+            double potentialIGain = (m_totalError + error * period) * I;
+            if (potentialIGain < maximumOutput) {
+                if (potentialIGain > minimumOutput) {
+                    m_totalError += error * period;
+                } else {
+                    m_totalError = minimumOutput / I;
+                }
+            } else {
+                m_totalError = maximumOutput / I;
+            }
+        }
+
+        double result = P * error + I * m_totalError
+                + D * (error - m_prevError) / period + F * setpoint;
+        m_prevError = error;
+
+        if (result > maximumOutput) {
+            result = maximumOutput;
+        } else if (result < minimumOutput) {
+            result = minimumOutput;
+        }
+        m_error = error;
+        m_result = result;
+        m_pidOutput.pidWrite(result);
+    }
+
+    /**
+     * Set the PID Controller gain parameters.
+     *
+     * @param p Proportional coefficient
+     * @param i Integral coefficient
+     * @param d Differential coefficient
+     */
+    public void setPID(double p, double i, double d) {
+        m_P = p;
+        m_I = i;
+        m_D = d;
+    }
+
+    /**
+     * Set the PID Controller gain parameters.
+     *
+     * @param p Proportional coefficient
+     * @param i Integral coefficient
+     * @param d Differential coefficient
+     * @param f Feed forward coefficient
+     */
+    public void setPID(double p, double i, double d, double f) {
+        setPID(p, i, d);
+        m_F = f;
+    }
+
+    public double getP() {
+        return m_P;
+    }
+
+    public double getI() {
+        return m_I;
+    }
+
+    public double getD() {
+        return m_D;
+    }
+
+    public double getF() {
+        return m_F;
+    }
+
+    /**
+     * Return the current PID result. This is always centered on zero and
+     * constrained to the max and min outs.
+     *
+     * @return the latest calculated output
+     */
+    public double get() {
+        return m_result;
+    }
+
+    /**
+     * Set the PID controller to consider the input to be continuous. Rather
+     * then using the max and min in as constraints, it considers them to be
+     * the same point and automatically calculates the shortest route to the
+     * setpoint.
+     *
+     * @param continuous Set to true turns on continuous, false turns off
+     * continuous
+     */
+    public void setContinuous(boolean continuous) {
+        m_continuous = continuous;
+    }
+
+    /**
+     * Sets the maximum and minimum values expected from the input.
+     *
+     * @param minimumInput the minimum value expected from the input
+     * @param maximumInput the maximum value expected from the output
+     */
+    public void setInputRange(double minimumInput, double maximumInput) {
+        if (minimumInput > maximumInput) {
+            throw new IllegalArgumentException("Lower bound is greater than upper bound");
+        }
+        m_minimumInput = minimumInput;
+        m_maximumInput = maximumInput;
+    }
+
+    /**
+     * Sets the minimum and maximum values to write.
+     *
+     * @param minimumOutput the minimum percentage to write to the output
+     * @param maximumOutput the maximum percentage to write to the output
+     */
+    public void setOutputRange(double minimumOutput, double maximumOutput) {
+        if (minimumOutput > maximumOutput) {
+            throw new IllegalArgumentException("Lower bound is greater than upper bound");
+        }
+        m_minimumOutput = minimumOutput;
+        m_maximumOutput = maximumOutput;
+    }
+
+    /**
+     * Set the setpoint for the PIDController
+     *
+     * @param setpoint the desired setpoint
+     */
+    public void setSetpoint(double setpoint) {
+        if (m_maximumInput > m_minimumInput) {
+            if (setpoint > m_maximumInput) {
+                setpoint = m_maximumInput;
+            } else if (setpoint < m_minimumInput) {
+                setpoint = m_minimumInput;
+            }
+        }
+        m_setpoint = setpoint;
+    }
+
+    public double getSetpoint() {
+        return m_setpoint;
+    }
+
+    /**
+     * Returns the current difference of the input from the setpoint
+     *
+     * @return the current error
+     */
+    public double getError() {
+        return m_error;
+    }
+
+    /**
+     * Set the absolute error which is considered tolerable for use with
+     * OnTarget.
+     *
+     * @param tolerance absolute error which is tolerable
+     */
+    public void setAbsoluteTolerance(double tolerance) {
+        m_tolerance = tolerance;
+    }
+
+    /**
+     * Return true if the error is within the tolerance set by
+     * setAbsoluteTolerance.
+     *
+     * @return true if the error is less than the tolerance
+     */
+    public boolean onTarget() {
+        return Math.abs(m_error) < m_tolerance;
+    }
+
+    /**
+     * Set the period between calculations.
+     *
+     * @param period the loop time in seconds
+     */
+    public void setPeriod(double period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        m_period = period;
+    }
+
+    public double getPeriod() {
+        return m_period;
+    }
+
+    /**
+     * Begin running the PIDController
+     */
+    public void enable() {
+        m_zeroRequested = false;
+        m_enabled = true;
+    }
+
+    /**
+     * Stop running the PIDController. The output is set to zero by the next
+     * calculation, on the thread running the controller, so a calculation
+     * already under way cannot overwrite it.
+     */
+    public void disable() {
+        m_zeroRequested = true;
+        m_enabled = false;
+    }
+
+    /**
+     * Return true if PIDController is enabled.
+     */
+    public boolean isEnable() {
+        return m_enabled;
+    }
+
+    /**
+     * Reset the previous error and the integral term. The accumulated state is
+     * cleared by the next calculation so the calling thread never races the
+     * one running the loop.
+     */
+    public void reset() {
+        m_resetRequested = true;
+        m_error = 0;
+        m_result = 0;
+    }
+}
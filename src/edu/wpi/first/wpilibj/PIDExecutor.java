@@ -0,0 +1,92 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+/**
+ * Steps a batch of PIDControllers in a single tick of the calling thread. One
+ * executor replaces a thread per controller: register it as a task on the
+ * control loop and every controller is calculated once per cycle, in the order
+ * it was added. All controllers are given the executor's period.
+ */
+public class PIDExecutor implements Runnable {
+
+    private final Object lock = new Object();
+    private final double period;
+    private volatile PIDController[] controllers = new PIDController[0];
+
+    /**
+     * Create an executor stepping its controllers every period.
+     *
+     * @param period the loop time of the thread running this executor, in
+     * seconds
+     */
+    public PIDExecutor(double period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        this.period = period;
+    }
+
+    /**
+     * Add a controller to the batch.
+     *
+     * @param controller the controller to step every tick
+     */
+    public void add(PIDController controller) {
+        if (controller == null) {
+            throw new NullPointerException("Given controller was null");
+        }
+        controller.setPeriod(period);
+        synchronized (lock) {
+            PIDController[] old = controllers;
+            PIDController[] updated = new PIDController[old.length + 1];
+            System.arraycopy(old, 0, updated, 0, old.length);
+            updated[old.length] = controller;
+            controllers = updated;
+        }
+    }
+
+    /**
+     * Remove a controller from the batch.
+     *
+     * @param controller the controller to remove
+     * @return true if the controller was in the batch
+     */
+    public boolean remove(PIDController controller) {
+        synchronized (lock) {
+            PIDController[] old = controllers;
+            for (int i = 0; i < old.length; i++) {
+                if (old[i] == controller) {
+                    PIDController[] updated = new PIDController[old.length - 1];
+                    System.arraycopy(old, 0, updated, 0, i);
+                    System.arraycopy(old, i + 1, updated, i, old.length - i - 1);
+                    controllers = updated;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Calculate every controller once.
+     */
+    public void run() {
+        PIDController[] current = controllers;
+        for (int i = 0; i < current.length; i++) {
+            current[i].calculate();
+        }
+    }
+
+    public int size() {
+        return controllers.length;
+    }
+
+    public double getPeriod() {
+        return period;
+    }
+}
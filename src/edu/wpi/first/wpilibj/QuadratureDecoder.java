@@ -0,0 +1,145 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+/**
+ * Decodes the A and B channels of a quadrature encoder into counts. Each edge
+ * is given as the state of both channels right after it, with A in bit 1 and B
+ * in bit 0. The count changes by a value looked up in a 16 entry table indexed
+ * by the previous and new states, one table per encoding type, so a whole
+ * buffer of edges is decoded in a single loop.
+ *
+ * Moving forward, A leads B: the states go 00, 10, 11, 01, 00. With 4X
+ * decoding every edge counts, with 2X only the edges of A, and with 1X only
+ * the edges of A while B is low. A transition changing both channels at once
+ * means an edge was missed; it does not count and is reported as an error.
+ *
+ * A decoder keeps the last state, so it decodes a single encoder from a
+ * single thread.
+ */
+public class QuadratureDecoder {
+
+    private static final byte[] TABLE_4X = table(new int[]{0, 2, 3, 1}, true, true);
+    private static final byte[] TABLE_2X = table(new int[]{0, 2, 3, 1}, true, false);
+    private static final byte[] TABLE_1X = table(new int[]{0, 2, 3, 1}, false, false);
+    private static final byte[] ILLEGAL = new byte[16];
+
+    static {
+        for (int from = 0; from < 4; from++) {
+            ILLEGAL[from << 2 | (from ^ 3)] = 1;
+        }
+    }
+
+    /**
+     * Build the table of one encoding type from the forward sequence of
+     * states.
+     *
+     * @param sequence the states moving forward
+     * @param bothEdgesOfA count the falling edges of A too
+     * @param edgesOfB count the edges of B
+     */
+    private static byte[] table(int[] sequence, boolean bothEdgesOfA, boolean edgesOfB) {
+        byte[] table = new byte[16];
+        for (int i = 0; i < 4; i++) {
+            int from = sequence[i];
+            int to = sequence[(i + 1) & 3];
+            boolean edgeOfA = ((from ^ to) & 2) != 0;
+            boolean counted = edgeOfA
+                    ? bothEdgesOfA || (from & 1) == 0
+                    : edgesOfB;
+            if (counted) {
+                table[from << 2 | to] = 1;
+                table[to << 2 | from] = -1;
+            }
+        }
+        return table;
+    }
+
+    private final byte[] table;
+    private final double decodingScaleFactor;
+    private int state;
+    private long errors;
+
+    /**
+     * Create a decoder starting with both channels low.
+     *
+     * @param encodingType which edges to count
+     */
+    public QuadratureDecoder(Encoder.EncodingType encodingType) {
+        if (encodingType == null) {
+            throw new NullPointerException("Given encoding type was null");
+        }
+        switch (encodingType.value) {
+            case Encoder.EncodingType.k1X_val:
+                table = TABLE_1X;
+                decodingScaleFactor = 1;
+                break;
+            case Encoder.EncodingType.k2X_val:
+                table = TABLE_2X;
+                decodingScaleFactor = 0.5;
+                break;
+            default:
+                table = TABLE_4X;
+                decodingScaleFactor = 0.25;
+                break;
+        }
+    }
+
+    /**
+     * Decode a buffer of edges.
+     *
+     * @param states the state of the channels after each edge
+     * @param offset the index of the first edge
+     * @param length the number of edges
+     * @return The change of the count over the edges
+     */
+    public int decode(byte[] states, int offset, int length) {
+        byte[] table = this.table;
+        int current = state;
+        int delta = 0;
+        int illegal = 0;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            int next = states[i] & 3;
+            int transition = current << 2 | next;
+            delta += table[transition];
+            illegal += ILLEGAL[transition];
+            current = next;
+        }
+        state = current;
+        errors += illegal;
+        return delta;
+    }
+
+    /**
+     * Set the state of the channels without counting, for instance to the
+     * state read when the encoder is started.
+     *
+     * @param state the state, with A in bit 1 and B in bit 0
+     */
+    public void setState(int state) {
+        this.state = state & 3;
+    }
+
+    public int getState() {
+        return state;
+    }
+
+    /**
+     * @return The number of transitions which skipped a state
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return The scale converting the count into encoder pulses: 1, 0.5 or
+     * 0.25
+     */
+    public double getDecodingScaleFactor() {
+        return decodingScaleFactor;
+    }
+}
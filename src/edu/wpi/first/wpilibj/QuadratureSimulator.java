@@ -0,0 +1,159 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+/**
+ * Produces the edges of a quadrature encoder turning at a given speed. The
+ * position is kept in quarter pulses; each quarter crossed changes the level
+ * of A or B, at a time interpolated between the two calls that moved over it.
+ *
+ * Moving forward, A leads B, as expected by {@link QuadratureDecoder}. With an
+ * index channel, the index is high for the first quarter of the first pulse
+ * of every revolution, while A and B are both low.
+ */
+public class QuadratureSimulator {
+
+    // state of A and B at each quarter of a pulse, A in bit 1 and B in bit 0
+    private static final int[] QUARTERS = {0, 2, 3, 1};
+
+    private final DigitalSource a, b, index;
+    private final long quartersPerRevolution;
+    private double position;
+    private long quarter;
+    private long lastTime;
+    private boolean started;
+    private long edges, dropped;
+
+    /**
+     * @param a the A channel
+     * @param b the B channel
+     */
+    public QuadratureSimulator(DigitalSource a, DigitalSource b) {
+        this(a, b, null, 1);
+    }
+
+    /**
+     * @param a the A channel
+     * @param b the B channel
+     * @param index the index channel, or null
+     * @param pulsesPerRevolution the number of pulses between two index
+     * pulses
+     */
+    public QuadratureSimulator(DigitalSource a, DigitalSource b, DigitalSource index,
+            int pulsesPerRevolution) {
+        if (a == null || b == null) {
+            throw new NullPointerException("Given digital source was null");
+        }
+        if (pulsesPerRevolution <= 0) {
+            throw new IllegalArgumentException("Pulses per revolution must be positive");
+        }
+        this.a = a;
+        this.b = b;
+        this.index = index;
+        this.quartersPerRevolution = 4L * pulsesPerRevolution;
+    }
+
+    /**
+     * Turn the encoder, producing the edges crossed.
+     *
+     * @param pulses the number of pulses to turn, negative to turn backwards
+     * @param timeNanos the time the encoder reaches the new position
+     */
+    public void advance(double pulses, long timeNanos) {
+        if (!started) {
+            lastTime = timeNanos;
+            started = true;
+        }
+        double from = position;
+        double to = position + pulses * 4;
+        long target = (long) Math.floor(to);
+        long span = timeNanos - lastTime;
+        while (quarter != target) {
+            double boundary;
+            if (target > quarter) {
+                quarter++;
+                boundary = quarter;
+            } else {
+                boundary = quarter;
+                quarter--;
+            }
+            long time = lastTime + (long) (span * ((boundary - from) / (to - from)));
+            int state = QUARTERS[(int) (quarter & 3)];
+            if (index == null) {
+                edge((state & EdgeQueue.A) != 0, (state & EdgeQueue.B) != 0, time);
+                continue;
+            }
+            long phase = quarter % quartersPerRevolution;
+            boolean indexLevel = phase == 0;
+            // the index only changes while A and B are both low
+            if (!indexLevel) {
+                indexEdge(false, time);
+            }
+            edge((state & EdgeQueue.A) != 0, (state & EdgeQueue.B) != 0, time);
+            if (indexLevel) {
+                indexEdge(true, time);
+            }
+        }
+        position = to;
+        lastTime = timeNanos;
+    }
+
+    /**
+     * Turn the encoder at a constant speed.
+     *
+     * @param pulsesPerSecond the speed, in pulses per second
+     * @param timeNanos the time to turn until
+     */
+    public void runUntil(double pulsesPerSecond, long timeNanos) {
+        long start = started ? lastTime : timeNanos;
+        advance(pulsesPerSecond * (timeNanos - start) * 1e-9, timeNanos);
+    }
+
+    /**
+     * Set the levels for an edge. Subclasses may add channels.
+     *
+     * @param levelA the level of A after the edge
+     * @param levelB the level of B after the edge
+     * @param timeNanos the time of the edge
+     */
+    protected void edge(boolean levelA, boolean levelB, long timeNanos) {
+        edges++;
+        if (!a.set(levelA, timeNanos) || !b.set(levelB, timeNanos)) {
+            dropped++;
+        }
+    }
+
+    private void indexEdge(boolean level, long timeNanos) {
+        if (level != index.get()) {
+            edges++;
+            if (!index.set(level, timeNanos)) {
+                dropped++;
+            }
+        }
+    }
+
+    /**
+     * @return The position, in pulses
+     */
+    public double getPosition() {
+        return position / 4;
+    }
+
+    /**
+     * @return The number of edges produced
+     */
+    public long getEdges() {
+        return edges;
+    }
+
+    /**
+     * @return The number of edges dropped because the queue was full
+     */
+    public long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,159 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+/**
+ * The last N timestamped counts of an Encoder, kept in primitive ring buffers,
+ * with the rate estimated over the whole window. Adding a sample updates the
+ * estimate in constant time: the moving average only looks at the oldest and
+ * newest samples, and the linear regression keeps running sums which are
+ * rebuilt around a new origin once per window to stay precise.
+ *
+ * Only the counting thread may use a window.
+ */
+class RateWindow {
+
+    private final boolean regression;
+    private final long[] times;
+    private final long[] counts;
+    private int newest = -1;
+    private int size;
+    private int sinceRebase;
+
+    // regression sums, relative to the origin
+    private long originTime;
+    private long originCount;
+    private double sumX, sumY, sumXX, sumXY;
+
+    private double rate;
+
+    RateWindow(int capacity, boolean regression) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("A window needs at least two samples");
+        }
+        this.regression = regression;
+        this.times = new long[capacity];
+        this.counts = new long[capacity];
+    }
+
+    /**
+     * Add a sample and update the estimate.
+     *
+     * @param timeNanos the time of the sample
+     * @param count the raw count at that time
+     */
+    void add(long timeNanos, long count) {
+        int capacity = times.length;
+        int index = newest + 1 == capacity ? 0 : newest + 1;
+        if (size == capacity) {
+            if (regression) {
+                double x = (times[index] - originTime) * 1e-9;
+                double y = counts[index] - originCount;
+                sumX -= x;
+                sumY -= y;
+                sumXX -= x * x;
+                sumXY -= x * y;
+            }
+        } else {
+            size++;
+        }
+        times[index] = timeNanos;
+        counts[index] = count;
+        newest = index;
+
+        if (regression) {
+            if (size == 1 || ++sinceRebase >= capacity) {
+                rebase();
+            } else {
+                double x = (timeNanos - originTime) * 1e-9;
+                double y = count - originCount;
+                sumX += x;
+                sumY += y;
+                sumXX += x * x;
+                sumXY += x * y;
+            }
+            rate = slope();
+        } else {
+            rate = average();
+        }
+    }
+
+    private double average() {
+        if (size < 2) {
+            return 0;
+        }
+        int oldest = oldest();
+        long dt = times[newest] - times[oldest];
+        if (dt <= 0) {
+            return 0;
+        }
+        return (counts[newest] - counts[oldest]) / (dt * 1e-9);
+    }
+
+    private double slope() {
+        if (size < 2) {
+            return 0;
+        }
+        double denominator = size * sumXX - sumX * sumX;
+        if (denominator <= 0) {
+            return 0;
+        }
+        return (size * sumXY - sumX * sumY) / denominator;
+    }
+
+    /**
+     * Recompute the sums around the oldest sample, so they do not lose
+     * precision as time goes on.
+     */
+    private void rebase() {
+        int oldest = oldest();
+        originTime = times[oldest];
+        originCount = counts[oldest];
+        sumX = sumY = sumXX = sumXY = 0;
+        for (int i = 0, index = oldest; i < size; i++) {
+            double x = (times[index] - originTime) * 1e-9;
+            double y = counts[index] - originCount;
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumXY += x * y;
+            index = index + 1 == times.length ? 0 : index + 1;
+        }
+        sinceRebase = 0;
+    }
+
+    private int oldest() {
+        int index = newest - size + 1;
+        return index < 0 ? index + times.length : index;
+    }
+
+    /**
+     * Forget every sample.
+     */
+    void clear() {
+        newest = -1;
+        size = 0;
+        sinceRebase = 0;
+        sumX = sumY = sumXX = sumXY = 0;
+        rate = 0;
+    }
+
+    /**
+     * @return The estimated rate, in raw counts per second
+     */
+    double getRate() {
+        return rate;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return times.length;
+    }
+}
@@ -23,7 +23,7 @@ public interface SpeedController extends PIDOutput {
      * Common interface for setting the speed of a speed controller.
      *
      * @param speed The speed to set.  Value should be between -1.0 and 1.0.
-     * @param syncGroup The update group to add this Set() to, pending UpdateSyncGroup().  If 0, update immediately.
+     * @param syncGroup The update group to add this Set() to, pending SyncGroup.update().  If 0, update immediately.
      */
     void set(double speed, byte syncGroup);
 
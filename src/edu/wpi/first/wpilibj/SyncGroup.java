@@ -0,0 +1,164 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Update groups for speed controllers. A controller added to a SyncGroup and
+ * given a non zero sync group in {@link SpeedController#set(double, byte)}
+ * stages the value instead of applying it; {@link #update(byte)} then applies
+ * the staged values of every controller in the group at once, as a single bus
+ * transaction. A controller which is not in a SyncGroup applies every value
+ * immediately.
+ *
+ * A sync group is a bit mask: each of the 8 bits is a separate group, and a
+ * value may be staged in, or an update done on, several groups at once. The
+ * groups of one SyncGroup are independent of the groups of any other, so each
+ * drivetrain can own its own. Staging and updating are meant to be done by the
+ * control loop thread.
+ */
+public class SyncGroup {
+
+    /**
+     * A controller that can stage values.
+     */
+    interface Member {
+
+        /**
+         * Apply the staged value, if there is one.
+         *
+         * @return true if a value was applied
+         */
+        boolean commitSync();
+
+        /**
+         * Make the member stage its values in the given groups instead of the
+         * ones it was in before.
+         *
+         * @param syncGroups the groups, or null to apply values immediately
+         */
+        void setSyncGroups(SyncGroup syncGroups);
+
+        /**
+         * @return the groups the member stages its values in, or null
+         */
+        SyncGroup getSyncGroups();
+    }
+
+    private final Object lock = new Object();
+    private volatile Member[][] groups = new Member[8][0];
+    private final AtomicLong transactions = new AtomicLong();
+
+    /**
+     * Make a controller stage the values set with a sync group in these
+     * groups. Controllers which cannot stage values are ignored.
+     *
+     * @param controller the controller to add
+     */
+    public void add(SpeedController controller) {
+        if (controller instanceof Member) {
+            ((Member) controller).setSyncGroups(this);
+        }
+    }
+
+    /**
+     * Remove a controller from every group, applying the value it has staged.
+     * Afterwards the controller applies every value immediately.
+     *
+     * @param controller the controller to remove
+     */
+    public void remove(SpeedController controller) {
+        if (controller instanceof Member && ((Member) controller).getSyncGroups() == this) {
+            Member member = (Member) controller;
+            member.setSyncGroups(null);
+            member.commitSync();
+        }
+    }
+
+    /**
+     * Add a member to every group of the mask it is not already in. Only
+     * called the first time a member uses a group, so the arrays are copied
+     * on write and updates can read them without locking.
+     */
+    void join(Member member, byte syncGroup) {
+        synchronized (lock) {
+            Member[][] updated = groups.clone();
+            for (int bit = 0; bit < 8; bit++) {
+                if ((syncGroup & (1 << bit)) == 0) {
+                    continue;
+                }
+                Member[] old = updated[bit];
+                boolean found = false;
+                for (int i = 0; i < old.length; i++) {
+                    if (old[i] == member) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    Member[] group = new Member[old.length + 1];
+                    System.arraycopy(old, 0, group, 0, old.length);
+                    group[old.length] = member;
+                    updated[bit] = group;
+                }
+            }
+            groups = updated;
+        }
+    }
+
+    /**
+     * Remove a member from every group it is in.
+     */
+    void leave(Member member) {
+        synchronized (lock) {
+            Member[][] updated = groups.clone();
+            for (int bit = 0; bit < 8; bit++) {
+                Member[] old = updated[bit];
+                for (int i = 0; i < old.length; i++) {
+                    if (old[i] == member) {
+                        Member[] group = new Member[old.length - 1];
+                        System.arraycopy(old, 0, group, 0, i);
+                        System.arraycopy(old, i + 1, group, i, old.length - i - 1);
+                        updated[bit] = group;
+                        break;
+                    }
+                }
+            }
+            groups = updated;
+        }
+    }
+
+    /**
+     * Apply the staged values of every controller in the given groups.
+     *
+     * @param syncGroup the groups to update
+     */
+    public void update(byte syncGroup) {
+        Member[][] current = groups;
+        for (int bit = 0; bit < 8; bit++) {
+            if ((syncGroup & (1 << bit)) == 0) {
+                continue;
+            }
+            Member[] group = current[bit];
+            boolean committed = false;
+            for (int i = 0; i < group.length; i++) {
+                committed |= group[i].commitSync();
+            }
+            if (committed) {
+                transactions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return The number of group updates which applied at least one value
+     */
+    public long getTransactionCount() {
+        return transactions.get();
+    }
+}
@@ -9,10 +9,14 @@ package edu.wpi.first.wpilibj;
 /**
  * CTRE Talon Speed Controller
  */
-public class Talon implements SpeedController {
+public class Talon implements SpeedController, SyncGroup.Member {
 
     private double speed;
     private boolean enabled;
+    private double pendingSpeed;
+    private boolean pending;
+    private int joinedGroups;
+    private SyncGroup syncGroups;
 
     /**
      * Common initialization code called by all constructors.
@@ -53,17 +57,46 @@ public class Talon implements SpeedController {
     /**
      * Set the PWM value.
      *
-     * @deprecated For compatibility with CANJaguar
-     *
      * The PWM value is set using a range of -1.0 to 1.0, appropriately scaling
      * the value for the FPGA.
      *
      * @param speed The speed to set. Value should be between -1.0 and 1.0.
      * @param syncGroup The update group to add this Set() to, pending
-     * UpdateSyncGroup(). If 0, update immediately.
+     * SyncGroup.update(). If 0, or the Talon is not in a SyncGroup, update
+     * immediately.
      */
     public void set(double speed, byte syncGroup) {
-        set(speed);
+        if (syncGroup == 0 || syncGroups == null) {
+            set(speed);
+            return;
+        }
+        pendingSpeed = speed;
+        pending = true;
+        if ((joinedGroups & syncGroup) != (syncGroup & 0xff)) {
+            syncGroups.join(this, syncGroup);
+            joinedGroups |= syncGroup & 0xff;
+        }
+    }
+
+    public boolean commitSync() {
+        if (!pending) {
+            return false;
+        }
+        pending = false;
+        set(pendingSpeed);
+        return true;
+    }
+
+    public void setSyncGroups(SyncGroup syncGroups) {
+        if (this.syncGroups != null) {
+            this.syncGroups.leave(this);
+        }
+        this.syncGroups = syncGroups;
+        joinedGroups = 0;
+    }
+
+    public SyncGroup getSyncGroups() {
+        return syncGroups;
     }
 
     /**
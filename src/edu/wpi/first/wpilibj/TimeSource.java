@@ -0,0 +1,29 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) FIRST 2008-2012. All Rights Reserved.                        */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+package edu.wpi.first.wpilibj;
+
+/**
+ * A clock measuring time in nanoseconds. Code that needs the time asks a
+ * time source instead of calling System.nanoTime() directly, so a simulation
+ * can replace the wall clock with its own.
+ */
+public interface TimeSource {
+
+    /**
+     * The wall clock, backed by System.nanoTime().
+     */
+    TimeSource SYSTEM = new TimeSource() {
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+    };
+
+    /**
+     * @return The current time, in nanoseconds from an arbitrary origin
+     */
+    long nanoTime();
+}
@@ -17,6 +17,12 @@ public class Vars {
          * The minimum speed for allowing rescaling the speed of the robot.
          */
         public static final double NO_SCALE_SPEED = 0.1;
+
+        /**
+         * The part of the measured mismatch between the sides corrected each
+         * cycle, below 1 so the correction does not chase the lag of the motors.
+         */
+        public static final double FACTOR_GAIN = 0.25;
     }
     
     public static int TICKS = 60;
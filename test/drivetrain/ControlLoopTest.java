@@ -0,0 +1,64 @@
+package drivetrain;
+
+import drivetrain.simulation.EventScheduler;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class ControlLoopTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooSlow() {
+        new ControlLoop(10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooFast() {
+        new ControlLoop(5000);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStartSimulated() {
+        new ControlLoop(100, new EventScheduler()).start();
+    }
+
+    @Test
+    public void testRunsTasks() throws InterruptedException {
+        final AtomicInteger count = new AtomicInteger();
+        ControlLoop loop = new ControlLoop(200);
+        loop.add(new Runnable() {
+            public void run() {
+                count.incrementAndGet();
+            }
+        });
+        loop.start();
+        Thread.sleep(200);
+        loop.stop();
+        assertFalse(loop.isRunning());
+        assertTrue(count.get() > 0);
+        assertTrue(count.get() == loop.getCycles());
+        assertTrue(loop.getMaxJitterNanos() >= 0);
+    }
+
+    @Test
+    public void testOverrun() throws InterruptedException {
+        ControlLoop loop = new ControlLoop(500);
+        loop.add(new Runnable() {
+            public void run() {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException ex) {
+                }
+            }
+        });
+        loop.start();
+        Thread.sleep(100);
+        loop.stop();
+        assertTrue(loop.getOverruns() > 0);
+        assertTrue(loop.getMissedDeadlines() >= loop.getOverruns());
+    }
+}
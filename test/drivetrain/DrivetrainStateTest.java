@@ -0,0 +1,142 @@
+package drivetrain;
+
+import drivetrain.simulation.DrivetrainSimulation;
+import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.TimeSource;
+import edu.wpi.first.wpilibj.templates.Vars;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class DrivetrainStateTest {
+
+    Drivetrain d;
+    MonitoredGearbox a, b;
+    Encoder e1, e2;
+
+    public DrivetrainStateTest() {
+        e1 = new Encoder(5, 6);
+        e2 = new Encoder(7, 8);
+        a = new MonitoredGearbox(1, 2, e1);
+        b = new MonitoredGearbox(3, 4, 5, e2);
+        a.setWheelRadius(Vars.WHEEL_RADIUS);
+        b.setWheelRadius(Vars.WHEEL_RADIUS);
+        d = new Drivetrain(a, b);
+    }
+
+    @Test
+    public void testRestore() {
+        d.twoJoystickDrive(0.5, 0.3);
+        a.setSpeedFactor(0.8);
+        e1.setTicks(1234);
+        e1.setPeriod(0.01);
+        e2.setTicks(-50);
+        DrivetrainState state = new DrivetrainState().capture(d);
+
+        d.twoJoystickDrive(-1, 1);
+        a.setSpeedFactor(1);
+        e1.setTicks(0);
+        e1.setDistancePerPulse(2);
+        e2.setRate(10);
+
+        state.restore(d);
+        assertEquals(0.5, a.get(), 1e-9);
+        assertEquals(-0.3, b.get(), 1e-9);
+        assertEquals(0.8, a.getSpeedFactor(), 0);
+        assertTrue(b.isEnabled());
+        assertEquals(1234, e1.getRawLong());
+        Encoder.Snapshot snapshot = e1.getSnapshot(new Encoder.Snapshot());
+        assertEquals(0.01, snapshot.period / snapshot.decodingScaleFactor, 0);
+        assertEquals(-50, e2.getRawLong());
+        assertEquals(1234, state.getLeftTicks());
+        // the output is written again after a restore, even if it is the same
+        d.setLeftSpeed(0.5 / 0.8);
+        assertEquals(0.5, a.get(), 1e-9);
+    }
+
+    @Test
+    public void testDisabled() {
+        MonitoredGearbox c = new MonitoredGearbox(1, 2, new Encoder(5, 6));
+        MonitoredGearbox f = new MonitoredGearbox(3, 4, 5, new Encoder(7, 8));
+        Drivetrain other = new Drivetrain(c, f);
+        f.disable();
+        DrivetrainState state = new DrivetrainState().capture(other);
+        d.twoJoystickDrive(1, 1);
+        state.restore(d);
+        assertTrue(a.isEnabled());
+        assertFalse(b.isEnabled());
+        d.twoJoystickDrive(1, 1);
+        assertEquals(1, a.get(), 0);
+        assertEquals(0, b.get(), 0);
+    }
+
+    @Test
+    public void testDisabledSince() {
+        d.twoJoystickDrive(0.5, 0.5);
+        DrivetrainState state = new DrivetrainState().capture(d);
+        d.twoJoystickDrive(1, 1);
+        b.disable();
+        try {
+            state.restore(d);
+            fail("restored over a disabled gearbox");
+        } catch (IllegalStateException e) {
+        }
+        // nothing was restored
+        assertEquals(1, a.get(), 0);
+        assertEquals(0, b.get(), 0);
+    }
+
+    @Test
+    public void testBranch() {
+        DrivetrainSimulation sim = new DrivetrainSimulation(d);
+        d.twoJoystickDrive(0.6, 0.6);
+        sim.run(1);
+        DrivetrainState state = new DrivetrainState().capture(d);
+        double leftPosition = sim.getLeft().getPosition(), leftVelocity = sim.getLeft().getVelocity();
+        double rightPosition = sim.getRight().getPosition(), rightVelocity = sim.getRight().getVelocity();
+
+        double[] distances = new double[2];
+        for (int branch = 0; branch < 2; branch++) {
+            sim.getLeft().setState(leftPosition, leftVelocity);
+            sim.getRight().setState(rightPosition, rightVelocity);
+            new DrivetrainState().copyFrom(state).restore(d);
+            d.twoJoystickDrive(1, 1);
+            sim.run(0.5);
+            distances[branch] = a.getDistance();
+        }
+        assertEquals(distances[0], distances[1], 0);
+        assertTrue(distances[0] > e1.getDistancePerPulse() * state.getLeftTicks());
+    }
+
+    @Test
+    public void testWindowRate() {
+        final long[] now = {0};
+        e1.setTimeSource(new TimeSource() {
+            public long nanoTime() {
+                return now[0];
+            }
+        });
+        e1.setDistancePerPulse(0.5);
+        e1.setRateMode(Encoder.RateMode.kMovingAverage, 4);
+        for (int i = 1; i <= 8; i++) {
+            e1.countAt(1, i * 10000000L);
+        }
+        now[0] = 80000000L;
+        assertEquals(50, e1.getRate(), 1e-6);
+        DrivetrainState state = new DrivetrainState().capture(d);
+        e1.setTicks(0);
+        assertEquals(0, e1.getRate(), 0);
+
+        state.restore(d);
+        assertEquals(8, e1.getRawLong());
+        assertEquals(50, e1.getRate(), 1e-6);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNotCaptured() {
+        new DrivetrainState().restore(d);
+    }
+}
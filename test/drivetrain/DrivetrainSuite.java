@@ -16,11 +16,25 @@ import org.junit.runners.Suite;
  * @author EthanL
  */
 @RunWith(Suite.class)
-@Suite.SuiteClasses({drivetrain.GearboxTest.class, drivetrain.DrivetrainTest.class, drivetrain.MonitoredGearboxTest.class})
+@Suite.SuiteClasses({drivetrain.GearboxTest.class, drivetrain.DrivetrainTest.class, drivetrain.MonitoredGearboxTest.class,
+    drivetrain.ControlLoopTest.class, drivetrain.SimulationTest.class,
+    drivetrain.MonteCarloTest.class, drivetrain.EventLogTest.class,
+    drivetrain.TelemetryTest.class, drivetrain.OdometryTest.class,
+    drivetrain.MotionProfileTest.class, drivetrain.TrajectoryCacheTest.class,
+    drivetrain.InputPipelineTest.class, drivetrain.FleetSimulationTest.class,
+    drivetrain.EventSchedulerTest.class,
+    drivetrain.DrivetrainStateTest.class, drivetrain.PIDExecutorTest.class})
 public class DrivetrainSuite {
 
     @BeforeClass
     public static void setUpClass() throws Exception {
+        EventLog.setDefault(new EventLog(new EventLog.Sink() {
+            public void write(long timeNanos, String source, String message, double value) {
+            }
+
+            public void flush() {
+            }
+        }, EventLog.DEFAULT_CAPACITY));
     }
 
     @AfterClass
@@ -169,4 +169,89 @@ public class DrivetrainTest {
     public void testSetRightSpeed() {
         
     }
+
+    @Test
+    public void testSyncGroup() {
+        d.setSyncGroup((byte) 2);
+        long transactions = d.getSyncGroups().getTransactionCount();
+        d.setLeftSpeed(0.5);
+        d.setRightSpeed(0.5);
+        assertTrue(0 == a.get() && 0 == b.get());
+        d.updateSyncGroup();
+        assertTrue(0.5 == a.get() && -0.5 == b.get());
+        assertEquals(transactions + 1, d.getSyncGroups().getTransactionCount());
+
+        d.twoJoystickDrive(1, -1);
+        assertTrue(1 == a.get() && 1 == b.get());
+        assertEquals(transactions + 2, d.getSyncGroups().getTransactionCount());
+    }
+
+    @Test
+    public void testSyncGroupsPerDrivetrain() {
+        MonitoredGearbox left = new MonitoredGearbox(5, 6, new Encoder(5, 6));
+        MonitoredGearbox right = new MonitoredGearbox(7, 8, new Encoder(7, 8));
+        Drivetrain other = new Drivetrain(left, right);
+        d.setSyncGroup((byte) 2);
+        other.setSyncGroup((byte) 2);
+        d.setLeftSpeed(0.5);
+        other.setLeftSpeed(0.25);
+        other.updateSyncGroup();
+        assertTrue(0 == a.get() && 0.25 == left.get());
+        assertEquals(0, d.getSyncGroups().getTransactionCount());
+        d.updateSyncGroup();
+        assertTrue(0.5 == a.get());
+        assertEquals(1, other.getSyncGroups().getTransactionCount());
+    }
+
+    @Test
+    public void testDisableStaged() {
+        d.setSyncGroup((byte) 2);
+        d.setLeftSpeed(0.5);
+        a.disable();
+        d.updateSyncGroup();
+        assertTrue(0 == a.get());
+        d.setLeftSpeed(0.5);
+        d.updateSyncGroup();
+        assertTrue(0 == a.get());
+    }
+
+    @Test
+    public void testSyncGroupRemoved() {
+        d.setSyncGroup((byte) 2);
+        d.setLeftSpeed(0.5);
+        d.setSyncGroup((byte) 0);
+        // leaving the groups applies the staged speed
+        assertTrue(0.5 == a.get());
+        d.setLeftSpeed(0.25);
+        assertTrue(0.25 == a.get());
+        assertEquals(0, d.getSyncGroups().getTransactionCount());
+    }
+
+    @Test
+    public void testSensorSnapshot() {
+        e1.setTicks(100);
+        e2.setTicks(50);
+        e1.setRate(2);
+        e2.setRate(1);
+        SensorSnapshot sensors = d.readSensors();
+        assertSame(sensors, d.getSensors());
+        assertEquals(e1.getDistance(), sensors.getLeftDistance(), 1e-9);
+        assertEquals(e2.getDistance(), sensors.getRightDistance(), 1e-9);
+        assertEquals(d.getLeftSpeed(), sensors.getLeftVelocity(), 1e-9);
+        assertEquals(d.getRightSpeed(), sensors.getRightVelocity(), 1e-9);
+        long cycle = sensors.getCycle();
+
+        // reading a speed leaves the snapshot of the cycle alone
+        double velocity = sensors.getLeftVelocity();
+        e1.setRate(3);
+        assertEquals(e1.getRate(), d.getLeftSpeed(), 1e-9);
+        assertEquals(velocity, sensors.getLeftVelocity(), 0);
+        assertEquals(cycle, sensors.getCycle());
+
+        e1.setTicks(200);
+        assertEquals(100, sensors.getLeftCount());
+        assertSame(sensors, d.readSensors());
+        assertEquals(200, sensors.getLeftCount());
+        assertEquals(cycle + 1, sensors.getCycle());
+    }
 }
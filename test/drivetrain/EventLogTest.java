@@ -0,0 +1,115 @@
+package drivetrain;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class EventLogTest {
+
+    List<String> lines = new ArrayList<String>();
+    List<String> written = new ArrayList<String>();
+    EventLog log;
+
+    public EventLogTest() {
+        log = new EventLog(new EventLog.Sink() {
+            public void write(long timeNanos, String source, String message, double value) {
+                lines.add(source + message + value);
+            }
+
+            public void flush() {
+                written.addAll(lines.subList(written.size(), lines.size()));
+            }
+        }, 16384);
+    }
+
+    @After
+    public void tearDown() {
+        log.close();
+    }
+
+    @Test
+    public void testSpeedFactor() {
+        Gearbox g = new Gearbox(1, 2);
+        g.name = "left";
+        g.setEventLog(log);
+        g.setSpeedFactor(0.5);
+        g.setSpeedFactor(2);
+        log.flush();
+        assertEquals(2, lines.size());
+        assertEquals("left factor is:0.5", lines.get(0));
+        assertEquals("left factor is:1.0", lines.get(1));
+    }
+
+    @Test
+    public void testOnlyChanges() {
+        Gearbox g = new Gearbox(1, 2);
+        g.setEventLog(log);
+        g.setSpeedFactor(1);
+        g.setSpeedFactor(0.5);
+        g.setSpeedFactor(0.5);
+        log.flush();
+        assertEquals(1, lines.size());
+    }
+
+    @Test
+    public void testFlushWaitsForSink() {
+        for (int i = 0; i < 100; i++) {
+            log.record("flush", " count ", i);
+            log.flush();
+            assertEquals(i + 1, written.size());
+        }
+    }
+
+    @Test
+    public void testDefault() {
+        EventLog previous = EventLog.getDefault();
+        try {
+            EventLog.setDefault(log);
+            Gearbox g = new Gearbox(1, 2);
+            g.name = "shared";
+            assertTrue(g.getEventLog() == log);
+            g.setSpeedFactor(0.25);
+            log.flush();
+            assertEquals("shared factor is:0.25", written.get(0));
+        } finally {
+            EventLog.setDefault(previous);
+        }
+    }
+
+    @Test
+    public void testManyThreads() throws InterruptedException {
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final String name = "thread" + i;
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        log.record(name, " count ", j);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        log.flush();
+        assertEquals(0, log.getDropped());
+        assertEquals(4000, lines.size());
+        assertEquals(0, log.getPending());
+    }
+
+    @Test
+    public void testCapacity() {
+        assertEquals(16384, log.getCapacity());
+        EventLog small = new EventLog(new EventLog.PrintStreamSink(System.out), 5);
+        assertEquals(8, small.getCapacity());
+        small.close();
+    }
+}
@@ -0,0 +1,111 @@
+package drivetrain;
+
+import drivetrain.simulation.DrivetrainSimulation;
+import drivetrain.simulation.EventScheduler;
+import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.templates.Vars;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class EventSchedulerTest {
+
+    EventScheduler scheduler = new EventScheduler();
+    List<String> fired = new ArrayList<String>();
+
+    Runnable record(final String name, final long time) {
+        return new Runnable() {
+            public void run() {
+                assertEquals(time, scheduler.nanoTime());
+                fired.add(name);
+            }
+        };
+    }
+
+    @Test
+    public void testOrder() {
+        scheduler.schedule(30, record("c", 30));
+        scheduler.schedule(10, record("a", 10));
+        scheduler.schedule(20, record("b", 20));
+        scheduler.schedule(10, record("a2", 10));
+        scheduler.runUntil(25);
+        assertEquals(25, scheduler.nanoTime());
+        assertEquals("[a, a2, b]", fired.toString());
+        assertEquals(1, scheduler.getPending());
+        scheduler.schedule(5, record("late", 25));
+        scheduler.runUntil(100);
+        assertEquals("[a, a2, b, late, c]", fired.toString());
+        assertEquals(5, scheduler.getEventsRun());
+        assertFalse(scheduler.step());
+    }
+
+    @Test
+    public void testHeap() {
+        Random random = new Random(7);
+        final long[] last = {Long.MIN_VALUE};
+        Runnable check = new Runnable() {
+            public void run() {
+                assertTrue(scheduler.nanoTime() >= last[0]);
+                last[0] = scheduler.nanoTime();
+            }
+        };
+        for (int i = 0; i < 1000; i++) {
+            scheduler.schedule(random.nextInt(100000), check);
+            if (i % 3 == 0) {
+                scheduler.step();
+            }
+        }
+        while (scheduler.step()) {
+        }
+        assertEquals(1000, scheduler.getEventsRun());
+    }
+
+    @Test
+    public void testMatch() {
+        Encoder e1 = new Encoder(5, 6), e2 = new Encoder(7, 8);
+        MonitoredGearbox a = new MonitoredGearbox(1, 2, e1);
+        MonitoredGearbox b = new MonitoredGearbox(3, 4, e2);
+        a.setWheelRadius(Vars.WHEEL_RADIUS);
+        b.setWheelRadius(Vars.WHEEL_RADIUS);
+        final Drivetrain d = new Drivetrain(a, b, scheduler);
+        DrivetrainSimulation sim = new DrivetrainSimulation(d);
+        sim.schedule(scheduler);
+
+        final ControlLoop loop = new ControlLoop(50, scheduler);
+        loop.add(new Runnable() {
+            public void run() {
+                d.arcade(Math.sin(scheduler.getTime()), 0.2);
+            }
+        });
+        scheduler.schedulePeriodic(loop.getPeriodNanos(), new Runnable() {
+            public void run() {
+                loop.runCycle();
+            }
+        });
+
+        final Encoder edges = new Encoder(9, 10);
+        edges.setDistancePerPulse(0.5);
+        edges.setTimeSource(scheduler);
+        scheduler.schedulePeriodic(2000000, new Runnable() {
+            public void run() {
+                edges.countNow(1);
+            }
+        });
+
+        scheduler.run(150);
+        assertEquals(150, scheduler.getTime(), 1e-9);
+        assertEquals(150000, sim.getSteps());
+        assertEquals(7500, loop.getCycles());
+        assertEquals(0, loop.getMaxExecutionNanos());
+        assertEquals(75000, edges.getRawLong());
+        assertEquals(250, edges.getRate(), 1e-6);
+        assertTrue(a.getDistance() != 0);
+        assertEquals(scheduler.nanoTime(), d.readSensors().getTimeNanos());
+    }
+}
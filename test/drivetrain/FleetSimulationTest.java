@@ -0,0 +1,104 @@
+package drivetrain;
+
+import drivetrain.simulation.DrivetrainSimulation;
+import drivetrain.simulation.FleetSimulation;
+import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.templates.Vars;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class FleetSimulationTest {
+
+    Drivetrain d;
+    Encoder e1, e2;
+    DrivetrainSimulation sim;
+
+    public FleetSimulationTest() {
+        e1 = new Encoder(5, 6);
+        e2 = new Encoder(7, 8);
+        MonitoredGearbox a = new MonitoredGearbox(1, 2, e1);
+        MonitoredGearbox b = new MonitoredGearbox(3, 4, e2);
+        a.setWheelRadius(Vars.WHEEL_RADIUS);
+        b.setWheelRadius(Vars.WHEEL_RADIUS);
+        d = new Drivetrain(a, b);
+        sim = new DrivetrainSimulation(d);
+    }
+
+    @Test
+    public void testMatchesDrivetrainSimulation() {
+        final double[][] commands = {{0.3, 0.5}, {1, 1}, {-0.5, 0.2}, {0.8, -0.8}, {0, 0}};
+        FleetSimulation fleet = new FleetSimulation(100, sim);
+        for (int cycle = 0; cycle < 250; cycle++) {
+            double[] command = commands[cycle / 10 % commands.length];
+            d.twoJoystickDrive(command[0], command[1]);
+            for (int i = 0; i < fleet.getRobots(); i++) {
+                fleet.setSpeeds(i, command[0], command[1]);
+            }
+            for (int step = 0; step < 20; step++) {
+                sim.step();
+                fleet.step();
+            }
+        }
+        assertEquals(sim.getTime(), fleet.getTime(), 1e-9);
+        Encoder.Snapshot snapshot = e1.getSnapshot(new Encoder.Snapshot());
+        for (int i = 0; i < fleet.getRobots(); i += 33) {
+            assertEquals(sim.getLeft().getPosition(), fleet.getLeftPosition(i), 1e-6);
+            assertEquals(sim.getRight().getPosition(), fleet.getRightPosition(i), 1e-6);
+            assertEquals(sim.getLeft().getVelocity(), fleet.getLeftVelocity(i), 1e-6);
+            assertEquals(e1.getRawLong(), fleet.getLeftTicks(i), 1);
+            assertEquals(e2.getRawLong(), fleet.getRightTicks(i), 1);
+            assertEquals(snapshot.period / snapshot.decodingScaleFactor, fleet.getLeftPeriod(i), 1e-9);
+        }
+    }
+
+    @Test
+    public void testDecodingScale() {
+        e1.setEncodingType(Encoder.EncodingType.k4X);
+        e2.setEncodingType(Encoder.EncodingType.k4X);
+        FleetSimulation fleet = new FleetSimulation(2, sim);
+        d.twoJoystickDrive(0.7, 0.5);
+        fleet.setSpeeds(1, 0.7, 0.5);
+        sim.run(2);
+        fleet.run(2);
+        assertTrue(e1.getRawLong() > 0);
+        assertEquals(e1.getRawLong(), fleet.getLeftTicks(1), 1);
+        assertEquals(e2.getRawLong(), fleet.getRightTicks(1), 1);
+        assertEquals(e1.getDistance(), fleet.getLeftTicks(1) * e1.getDecodingScaleFactor()
+                * e1.getDistancePerPulse(), e1.getDistancePerPulse());
+        Encoder.Snapshot snapshot = e1.getSnapshot(new Encoder.Snapshot());
+        assertEquals(snapshot.period / snapshot.decodingScaleFactor, fleet.getLeftPeriod(1), 1e-9);
+
+        fleet.copyFrom(0, sim);
+        assertEquals(e1.getRawLong(), fleet.getLeftTicks(0));
+    }
+
+    @Test
+    public void testCopy() {
+        FleetSimulation fleet = new FleetSimulation(4, sim);
+        d.twoJoystickDrive(0.6, 0.4);
+        sim.getRight().setVelocityScale(0.9);
+        sim.run(1);
+        fleet.copyFrom(2, sim);
+        assertEquals(0.6, fleet.getLeftOutput(2), 1e-9);
+        assertEquals(-0.4, fleet.getRightOutput(2), 1e-9);
+        assertEquals(e1.getRawLong(), fleet.getLeftTicks(2));
+        sim.run(1);
+        fleet.run(1);
+        assertEquals(sim.getLeft().getPosition(), fleet.getLeftPosition(2), 1e-6);
+        assertEquals(sim.getRight().getPosition(), fleet.getRightPosition(2), 1e-6);
+        assertEquals(0, fleet.getLeftPosition(1), 0);
+
+        fleet.setSpeedFactors(3, 0.5, 1);
+        fleet.setSpeeds(3, 1, 1);
+        fleet.run(1);
+        fleet.copyTo(3, sim);
+        assertEquals(fleet.getLeftPosition(3), sim.getLeft().getPosition(), 0);
+        assertEquals(0.5, d.getLeftGearbox().getSpeedFactor(), 0);
+        assertEquals(fleet.getLeftVelocity(3), d.getLeftSpeed(), 1e-6);
+        assertTrue(fleet.getLeftVelocity(3) < fleet.getRightVelocity(3));
+    }
+}
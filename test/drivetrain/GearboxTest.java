@@ -4,6 +4,7 @@
  */
 package drivetrain;
 
+import edu.wpi.first.wpilibj.Talon;
 import java.util.Iterator;
 import java.util.Random;
 import org.junit.After;
@@ -74,6 +75,54 @@ public class GearboxTest {
         assertTrue(factor == g.getSpeedFactor());
     }
 
+    @Test
+    public void testWriteCoalescing() {
+        Gearbox three = new Gearbox(1, 2, 3);
+        three.set(0.5);
+        three.set(0.5);
+        three.set(0.5);
+        assertEquals(3, three.getSentWrites());
+        assertEquals(6, three.getSuppressedWrites());
+        three.setWriteEpsilon(0.1);
+        three.set(0.55);
+        assertTrue(0.5 == three.get());
+        three.set(0.65);
+        assertTrue(0.65 == three.get());
+        assertEquals(6, three.getSentWrites());
+        three.disable();
+        three.set(0.65);
+        assertEquals(9, three.getSentWrites());
+    }
+
+    @Test
+    public void testWritesStopAndFullSpeed() {
+        Gearbox two = new Gearbox(1, 2);
+        two.setWriteEpsilon(0.1);
+        two.set(0.05);
+        two.set(0);
+        assertTrue(0 == two.get());
+        two.set(0);
+        two.set(0.95);
+        two.set(1);
+        assertTrue(1 == two.get());
+        two.set(-0.95);
+        two.set(-1);
+        assertTrue(-1 == two.get());
+        assertEquals(0, two.getSuppressedWrites());
+    }
+
+    @Test
+    public void testDirectWrite() {
+        Talon front = new Talon(1);
+        Gearbox two = new Gearbox(front, new Talon(2));
+        two.set(0.5);
+        front.set(0.2);
+        two.set(0.5);
+        assertTrue(0.5 == front.get());
+        two.pidWrite(0.5);
+        assertEquals(2, two.getSuppressedWrites());
+    }
+
     @Test
     public void pidWrite() {
         double speed = 1;
@@ -0,0 +1,62 @@
+package drivetrain;
+
+import edu.wpi.first.wpilibj.Encoder;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class InputPipelineTest {
+
+    @Test
+    public void testDeadband() {
+        InputPipeline p = new InputPipeline().deadband(0.1);
+        assertEquals(0, p.apply(0.05), 1e-9);
+        assertEquals(0, p.apply(-0.1), 1e-9);
+        assertEquals(0.5, p.apply(0.55), 1e-9);
+        assertEquals(-1, p.apply(-1), 1e-9);
+    }
+
+    @Test
+    public void testCurve() {
+        InputPipeline p = new InputPipeline().curve(2);
+        assertEquals(0.25, p.apply(0.5), 1e-9);
+        assertEquals(-0.25, p.apply(-0.5), 1e-9);
+        assertEquals(1, p.apply(1), 1e-9);
+    }
+
+    @Test
+    public void testSlewAndLimit() {
+        InputPipeline p = new InputPipeline().slew(0.3).limit(-0.5, 0.5);
+        assertEquals(2, p.size());
+        assertEquals(0.3, p.apply(1), 1e-9);
+        assertEquals(0.5, p.apply(1), 1e-9);
+        assertEquals(0.5, p.apply(1), 1e-9);
+        assertEquals(0.5, p.apply(-1), 1e-9);
+        p.reset();
+        assertEquals(-0.3, p.apply(-1), 1e-9);
+    }
+
+    @Test
+    public void testOrder() {
+        InputPipeline p = new InputPipeline().deadband(0.2).curve(3).deadband(0.2).curve(1).limit(0, 0.1);
+        assertEquals(0, p.apply(0.6), 1e-9);
+        assertEquals(0.1, p.apply(1), 1e-9);
+    }
+
+    @Test
+    public void testArcade() {
+        MonitoredGearbox a = new MonitoredGearbox(1, 2, new Encoder(5, 6));
+        MonitoredGearbox b = new MonitoredGearbox(3, 4, new Encoder(7, 8));
+        Drivetrain d = new Drivetrain(a, b);
+        d.setMoveShaper(new InputPipeline().deadband(0.1));
+        d.setRotateShaper(new InputPipeline().limit(-0.2, 0.2));
+        d.arcade(0.05, 0);
+        assertEquals(0, a.get(), 1e-9);
+        d.arcade(1, -1);
+        assertEquals(1, a.get(), 1e-9);
+        assertEquals(-0.8, b.get(), 1e-9);
+    }
+}
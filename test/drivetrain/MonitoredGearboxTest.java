@@ -5,7 +5,9 @@
 package drivetrain;
 
 import com.sun.org.apache.bcel.internal.generic.GETFIELD;
+import drivetrain.simulation.GearboxSimulation;
 import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.templates.Vars;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -129,4 +131,36 @@ public class MonitoredGearboxTest {
             assertTrue(m.getDistance() == 0);
         }
     }
+
+    @Test
+    public void testSpeedFactor() {
+        m.setSpeedFactor(0.5);
+        m.set(0.8);
+        assertEquals(0.4, m.get(), 1e-9);
+        m.set(0.8, (byte) 0);
+        assertEquals(0.4, m.get(), 1e-9);
+        m.setSpeedFactor(1);
+        m.set(0.8);
+        assertEquals(0.8, m.get(), 1e-9);
+    }
+
+    @Test
+    public void testVelocityControl() {
+        m.setWheelRadius(Vars.WHEEL_RADIUS);
+        GearboxSimulation sim = new GearboxSimulation(m, Vars.WHEEL_RADIUS, 10.71, 25, false);
+        sim.setVelocityScale(0.8);
+        m.enableVelocityControl(sim.getMaxVelocity(), 0.005, 0.05, 0, 0.02, false);
+        assertTrue(m.isVelocityControlEnabled());
+        m.set(0.5);
+        for (int i = 0; i < 3000; i++) {
+            if (i % 20 == 0) {
+                m.update();
+            }
+            sim.step(0.001);
+        }
+        assertEquals(0.5 * sim.getMaxVelocity(), sim.getVelocity(), 0.02 * sim.getMaxVelocity());
+        m.disableVelocityControl();
+        assertFalse(m.isVelocityControlEnabled());
+        assertNull(m.getVelocityController());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+package drivetrain;
+
+import drivetrain.simulation.MonteCarloRunner;
+import drivetrain.simulation.ScenarioStatistics;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class MonteCarloTest {
+
+    MonteCarloRunner runner;
+
+    public MonteCarloTest() {
+        runner = new MonteCarloRunner(42);
+        runner.setDuration(1);
+        runner.setTicksRange(60, 360);
+    }
+
+    @Test
+    public void testReproducible() {
+        double first = runner.runScenario(7);
+        assertTrue(first == runner.runScenario(7));
+    }
+
+    @Test
+    public void testRun() {
+        ScenarioStatistics statistics = runner.run(100);
+        assertEquals(100, statistics.getCount());
+        assertTrue(statistics.getMin() <= statistics.getMean());
+        assertTrue(statistics.getMean() <= statistics.getMax());
+        assertTrue(statistics.getMax() == runner.runScenario(statistics.getWorstScenario()));
+    }
+
+    @Test
+    public void testOwnPool() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            MonteCarloRunner own = new MonteCarloRunner(42, pool);
+            own.setDuration(1);
+            own.setTicksRange(60, 360);
+            assertTrue(own.run(20).getMax() == runner.run(20).getMax());
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(MonteCarloRunner.getSharedPool() == MonteCarloRunner.getSharedPool());
+        assertFalse(MonteCarloRunner.getSharedPool().isShutdown());
+    }
+
+    @Test
+    public void testCorrectsMismatch() {
+        runner.setDuration(3);
+        runner.setMotorTolerance(0.3);
+        runner.setRadiusTolerance(0);
+        runner.setInputNoise(0);
+        ScenarioStatistics statistics = runner.run(64);
+        assertTrue(statistics.getMean() < 0.05);
+        assertTrue(statistics.getMax() < 0.1);
+    }
+
+    @Test
+    public void testCombine() {
+        ScenarioStatistics all = new ScenarioStatistics();
+        ScenarioStatistics first = new ScenarioStatistics();
+        ScenarioStatistics second = new ScenarioStatistics();
+        for (int i = 0; i < 100; i++) {
+            all.add(i, i * i);
+            (i < 30 ? first : second).add(i, i * i);
+        }
+        first.combine(second);
+        assertEquals(all.getCount(), first.getCount());
+        assertEquals(all.getMean(), first.getMean(), 1e-9);
+        assertEquals(all.getVariance(), first.getVariance(), 1e-6);
+        assertEquals(all.getWorstScenario(), first.getWorstScenario());
+    }
+}
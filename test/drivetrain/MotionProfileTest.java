@@ -0,0 +1,79 @@
+package drivetrain;
+
+import drivetrain.simulation.DrivetrainSimulation;
+import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.templates.Vars;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class MotionProfileTest {
+
+    @Test
+    public void testTrapezoidal() {
+        MotionProfile profile = MotionProfile.trapezoidal(300, 100, 200, 0.01);
+        // 0.5s accelerating over 25, 2.5s cruising, 0.5s decelerating
+        assertEquals(3.5, profile.getDuration(), 1e-9);
+        assertEquals(0, profile.getPosition(0), 1e-9);
+        assertEquals(300, profile.getDistance(), 1e-9);
+        assertEquals(0, profile.getVelocity(profile.getLength() - 1), 1e-9);
+        int cruise = profile.getIndex(1);
+        assertEquals(100, profile.getVelocity(cruise), 1e-9);
+        assertEquals(0, profile.getAcceleration(cruise), 1e-9);
+        assertEquals(75, profile.getPosition(cruise), 1e-9);
+        assertEquals(200, profile.getAcceleration(profile.getIndex(0.25)), 1e-9);
+        assertEquals(profile.getLength() - 1, profile.getIndex(100));
+        for (int i = 1; i < profile.getLength(); i++) {
+            assertTrue(profile.getPosition(i) >= profile.getPosition(i - 1));
+            assertTrue(profile.getVelocity(i) <= 100 + 1e-9);
+        }
+    }
+
+    @Test
+    public void testTriangular() {
+        MotionProfile profile = MotionProfile.trapezoidal(-50, 100, 200, 0.01);
+        assertEquals(-50, profile.getDistance(), 1e-9);
+        assertEquals(1, profile.getDuration(), 1e-9);
+        assertEquals(-100, profile.getVelocity(profile.getIndex(0.5)), 1e-9);
+    }
+
+    @Test
+    public void testSCurve() {
+        MotionProfile trapezoid = MotionProfile.trapezoidal(300, 100, 200, 0.01);
+        MotionProfile profile = MotionProfile.sCurve(300, 100, 200, 0.2, 0.01);
+        assertEquals(trapezoid.getDuration() + 0.19, profile.getDuration(), 1e-9);
+        assertEquals(300, profile.getDistance(), 1e-9);
+        assertEquals(0, profile.getVelocity(profile.getLength() - 1), 1e-9);
+        double maxJerk = 0;
+        for (int i = 1; i < profile.getLength(); i++) {
+            assertTrue(Math.abs(profile.getAcceleration(i)) <= 200 + 1e-9);
+            maxJerk = Math.max(maxJerk, Math.abs(profile.getAcceleration(i) - profile.getAcceleration(i - 1)) / 0.01);
+            double velocity = (profile.getPosition(i) - profile.getPosition(i - 1)) / 0.01;
+            assertEquals(profile.getVelocity(i), velocity, 2);
+        }
+        assertEquals(200 / 0.2, maxJerk, 1e-6);
+    }
+
+    @Test
+    public void testFollower() {
+        Encoder e1 = new Encoder(5, 6), e2 = new Encoder(7, 8);
+        MonitoredGearbox a = new MonitoredGearbox(1, 2, e1);
+        MonitoredGearbox b = new MonitoredGearbox(3, 4, e2);
+        a.setWheelRadius(Vars.WHEEL_RADIUS);
+        b.setWheelRadius(Vars.WHEEL_RADIUS);
+        Drivetrain d = new Drivetrain(a, b);
+        DrivetrainSimulation sim = new DrivetrainSimulation(d);
+        double maxVelocity = sim.getLeft().getMaxVelocity();
+        MotionProfile profile = MotionProfile.sCurve(200, maxVelocity / 2, maxVelocity, 0.1, 0.02);
+        ProfileFollower follower = new ProfileFollower(d, profile, maxVelocity);
+        follower.setPositionGain(0.05);
+        sim.setController(follower, 0.02);
+        sim.run(profile.getDuration() + 0.1);
+        assertTrue(follower.isFinished());
+        assertEquals(200, a.getDistance(), 5);
+        assertEquals(200, b.getDistance(), 5);
+    }
+}
@@ -0,0 +1,86 @@
+package drivetrain;
+
+import drivetrain.simulation.DrivetrainSimulation;
+import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.templates.Vars;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class OdometryTest {
+
+    Drivetrain d;
+    MonitoredGearbox a, b;
+    Encoder e1, e2;
+    Odometry odometry;
+    Odometry.Pose pose = new Odometry.Pose();
+
+    public OdometryTest() {
+        e1 = new Encoder(5, 6);
+        e2 = new Encoder(7, 8);
+        e1.setDistancePerPulse(0.001);
+        e2.setDistancePerPulse(0.001);
+        a = new MonitoredGearbox(1, 2, e1);
+        b = new MonitoredGearbox(3, 4, e2);
+        d = new Drivetrain(a, b);
+        odometry = new Odometry(d, 60);
+    }
+
+    @Test
+    public void testArc() {
+        odometry.run();
+        for (int i = 1; i <= 100; i++) {
+            e2.setDistance(Math.PI / 2 * 60 * i / 100);
+            odometry.run();
+        }
+        odometry.getPose(pose);
+        assertEquals(Math.PI / 2, pose.heading, 1e-4);
+        assertEquals(30, pose.x, 0.01);
+        assertEquals(30, pose.y, 0.01);
+    }
+
+    @Test
+    public void testReset() {
+        odometry.run();
+        e1.setDistance(10);
+        odometry.reset(1, 2, Math.PI);
+        odometry.run();
+        odometry.getPose(pose);
+        assertEquals(1, pose.x, 1e-9);
+        assertEquals(2, pose.y, 1e-9);
+        assertEquals(Math.PI, pose.heading, 1e-9);
+        e1.setDistance(20);
+        e2.setDistance(10);
+        odometry.run();
+        odometry.getPose(pose);
+        assertEquals(-9, pose.x, 1e-9);
+        assertEquals(2, pose.y, 1e-9);
+    }
+
+    @Test
+    public void testSimulatedStraight() {
+        a.setWheelRadius(Vars.WHEEL_RADIUS);
+        b.setWheelRadius(Vars.WHEEL_RADIUS);
+        DrivetrainSimulation sim = new DrivetrainSimulation(d);
+        sim.setController(odometry, 0.005);
+        d.twoJoystickDrive(0.5, 0.5);
+        sim.run(2);
+        odometry.run();
+        odometry.getPose(pose);
+        assertEquals(a.getDistance(), pose.x, 0.1);
+        assertEquals(0, pose.y, 0.1);
+        assertEquals(0, pose.heading, 1e-3);
+    }
+
+    @Test
+    public void testOwnLoop() throws InterruptedException {
+        odometry.start(500);
+        Thread.sleep(100);
+        odometry.stop();
+        assertNull(odometry.getLoop());
+        assertTrue(odometry.getUpdates() > 10);
+    }
+}
@@ -0,0 +1,117 @@
+package drivetrain;
+
+import drivetrain.simulation.EventScheduler;
+import edu.wpi.first.wpilibj.PIDController;
+import edu.wpi.first.wpilibj.PIDExecutor;
+import edu.wpi.first.wpilibj.PIDOutput;
+import edu.wpi.first.wpilibj.PIDSource;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class PIDExecutorTest {
+
+    List<String> calculated = new ArrayList<String>();
+    double output = Double.NaN;
+    int writes;
+
+    PIDSource source(final String name, final double value) {
+        return new PIDSource() {
+            public double pidGet() {
+                calculated.add(name);
+                return value;
+            }
+        };
+    }
+
+    PIDOutput out = new PIDOutput() {
+        public void pidWrite(double value) {
+            output = value;
+            writes++;
+        }
+    };
+
+    @Test
+    public void testFixedRateSchedule() {
+        EventScheduler clock = new EventScheduler();
+        final ControlLoop loop = new ControlLoop(100, clock);
+        PIDExecutor executor = new PIDExecutor(loop.getPeriod());
+        PIDController a = new PIDController(1, 0, 0, source("a", 0), out);
+        PIDController b = new PIDController(1, 0, 0, source("b", 0), out);
+        executor.add(a);
+        executor.add(b);
+        a.enable();
+        b.enable();
+        assertEquals(0.01, a.getPeriod(), 0);
+        loop.add(executor);
+        clock.schedulePeriodic(loop.getPeriodNanos(), new Runnable() {
+            public void run() {
+                loop.runCycle();
+            }
+        });
+        clock.run(1);
+        assertEquals(100, loop.getCycles());
+        assertEquals(200, calculated.size());
+        for (int i = 0; i < calculated.size(); i += 2) {
+            assertEquals("a", calculated.get(i));
+            assertEquals("b", calculated.get(i + 1));
+        }
+        assertTrue(executor.remove(a));
+        clock.run(0.5);
+        assertEquals(250, calculated.size());
+        assertEquals("b", calculated.get(249));
+    }
+
+    @Test
+    public void testDisable() {
+        PIDController controller = new PIDController(0.5, 0, 0, source("c", 0), out);
+        controller.setSetpoint(1);
+        controller.calculate();
+        assertEquals(0, writes);
+        controller.enable();
+        controller.calculate();
+        assertEquals(0.5, output, 1e-9);
+        controller.disable();
+        // the zero is written by the thread calculating the controller
+        assertEquals(0.5, output, 1e-9);
+        controller.calculate();
+        assertEquals(0, output, 0);
+        controller.calculate();
+        assertEquals(2, writes);
+    }
+
+    @Test
+    public void testDisableDuringCalculation() {
+        final PIDController[] controller = new PIDController[1];
+        controller[0] = new PIDController(0.5, 0, 0, new PIDSource() {
+            public double pidGet() {
+                controller[0].disable();
+                return 0;
+            }
+        }, out);
+        controller[0].setSetpoint(1);
+        controller[0].enable();
+        controller[0].calculate();
+        assertEquals(0.5, output, 1e-9);
+        controller[0].calculate();
+        assertEquals(0, output, 0);
+        assertFalse(controller[0].isEnable());
+    }
+
+    @Test
+    public void testEnableCancelsZero() {
+        PIDController controller = new PIDController(0.5, 0, 0, source("d", 0), out);
+        controller.setSetpoint(1);
+        controller.enable();
+        controller.disable();
+        controller.enable();
+        controller.calculate();
+        assertEquals(0.5, output, 1e-9);
+        assertEquals(1, writes);
+    }
+}
@@ -0,0 +1,106 @@
+package drivetrain;
+
+import drivetrain.simulation.DrivetrainSimulation;
+import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.templates.Vars;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class SimulationTest {
+
+    Drivetrain d;
+    MonitoredGearbox a, b;
+    Encoder e1, e2;
+    DrivetrainSimulation sim;
+
+    public SimulationTest() {
+        e1 = new Encoder(5, 6);
+        e2 = new Encoder(7, 8);
+        a = new MonitoredGearbox(1, 2, e1);
+        b = new MonitoredGearbox(3, 4, e2);
+        d = new Drivetrain(a, b);
+        a.setWheelRadius(Vars.WHEEL_RADIUS);
+        b.setWheelRadius(Vars.WHEEL_RADIUS);
+        sim = new DrivetrainSimulation(d);
+    }
+
+    @Test
+    public void testStraight() {
+        d.twoJoystickDrive(1, 1);
+        sim.run(2);
+        assertEquals(2, sim.getTime(), 1e-9);
+        assertTrue(d.getLeftSpeed() > 0);
+        assertEquals(d.getLeftSpeed(), d.getRightSpeed(), 1e-9);
+        assertEquals(sim.getLeft().getMaxVelocity(), d.getLeftSpeed(), 1);
+        assertTrue(a.getDistance() > 0);
+        assertEquals(sim.getLeft().getPosition(), a.getDistance(), e1.getDistancePerPulse());
+    }
+
+    @Test
+    public void testStop() {
+        d.twoJoystickDrive(1, 1);
+        sim.run(1);
+        d.stop();
+        sim.run(2);
+        assertEquals(0, d.getLeftSpeed(), 0.01);
+        assertEquals(0, d.getRightSpeed(), 0.01);
+    }
+
+    @Test
+    public void testRotate() {
+        d.twoJoystickDrive(1, -1);
+        sim.run(1);
+        assertTrue(d.getLeftSpeed() > 0);
+        assertTrue(d.getRightSpeed() < 0);
+    }
+
+    @Test
+    public void testSpeedFactors() {
+        assertFalse(d.hasSimulatedEncoders());
+        sim.getRight().setVelocityScale(0.8);
+        sim.setController(new Runnable() {
+            public void run() {
+                d.straight(0.8);
+            }
+        }, 0.02);
+        sim.run(3);
+        assertEquals(0.8, a.getSpeedFactor(), 0.02);
+        assertEquals(1, b.getSpeedFactor(), 1e-9);
+        assertEquals(d.getLeftSpeed(), d.getRightSpeed(), 0.01 * d.getLeftSpeed());
+    }
+
+    @Test
+    public void testDeterministic() {
+        final double[] commands = {0.3, 1, -0.5, 0.8, 0};
+        sim.setController(new Runnable() {
+            int i;
+
+            public void run() {
+                d.arcade(commands[i++ % commands.length], 0.2);
+            }
+        }, 0.02);
+        sim.run(10);
+        double left = a.getDistance(), right = b.getDistance();
+
+        Encoder e3 = new Encoder(5, 6), e4 = new Encoder(7, 8);
+        MonitoredGearbox c = new MonitoredGearbox(1, 2, e3);
+        MonitoredGearbox f = new MonitoredGearbox(3, 4, e4);
+        c.setWheelRadius(Vars.WHEEL_RADIUS);
+        f.setWheelRadius(Vars.WHEEL_RADIUS);
+        final Drivetrain other = new Drivetrain(c, f);
+        DrivetrainSimulation otherSim = new DrivetrainSimulation(other);
+        otherSim.setController(new Runnable() {
+            int i;
+
+            public void run() {
+                other.arcade(commands[i++ % commands.length], 0.2);
+            }
+        }, 0.02);
+        otherSim.run(10);
+        assertTrue(left == c.getDistance() && right == f.getDistance());
+    }
+}
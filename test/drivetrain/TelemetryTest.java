@@ -0,0 +1,162 @@
+package drivetrain;
+
+import drivetrain.telemetry.TelemetryFormat;
+import drivetrain.telemetry.TelemetryRecorder;
+import drivetrain.telemetry.TelemetryReplay;
+import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.templates.Vars;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class TelemetryTest {
+
+    Drivetrain d;
+    MonitoredGearbox a, b;
+    Encoder e1, e2;
+    File directory;
+
+    public TelemetryTest() throws IOException {
+        e1 = new Encoder(5, 6);
+        e2 = new Encoder(7, 8);
+        a = new MonitoredGearbox(1, 2, e1);
+        b = new MonitoredGearbox(3, 4, e2);
+        d = new Drivetrain(a, b);
+        a.setWheelRadius(Vars.WHEEL_RADIUS);
+        b.setWheelRadius(Vars.WHEEL_RADIUS);
+        directory = Files.createTempDirectory("telemetry").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testSegments() throws IOException {
+        TelemetryRecorder recorder = new TelemetryRecorder(d, directory, "match", 4);
+        for (int i = 0; i < 10; i++) {
+            d.arcade(i / 10.0, 0);
+            e1.setTicks(i * 3);
+            recorder.record(i * 1000000L, i / 10.0, 0);
+        }
+        recorder.close();
+        assertEquals(2, recorder.getSegment());
+        assertEquals(10, recorder.getRecordCount());
+
+        RandomAccessFile last = new RandomAccessFile(TelemetryFormat.segmentFile(directory, "match", 2), "r");
+        assertEquals(TelemetryFormat.segmentSize(4), last.length());
+        assertEquals(TelemetryFormat.MAGIC, last.readInt());
+        last.seek(TelemetryFormat.HEADER_COUNT);
+        assertEquals(2, last.readLong());
+        last.seek(TelemetryFormat.HEADER_SIZE + TelemetryFormat.RECORD_SIZE + TelemetryFormat.LEFT_RAW);
+        assertEquals(27, last.readLong());
+        last.close();
+    }
+
+    @Test
+    public void testLongCount() throws IOException {
+        TelemetryRecorder recorder = new TelemetryRecorder(d, directory, "long", 4);
+        e1.setTicks(1L << 40);
+        recorder.record(0, 0, 0);
+        recorder.close();
+        assertEquals(0, recorder.getStalls());
+        assertFalse(TelemetryFormat.segmentFile(directory, "long", 1).exists());
+        RandomAccessFile in = new RandomAccessFile(TelemetryFormat.segmentFile(directory, "long", 0), "r");
+        in.seek(TelemetryFormat.HEADER_SIZE + TelemetryFormat.LEFT_RAW);
+        assertEquals(1L << 40, in.readLong());
+        in.close();
+    }
+
+    @Test
+    public void testReplaySpeedFactor() throws IOException {
+        TelemetryRecorder recorder = new TelemetryRecorder(d, directory, "factor", 16);
+        for (int i = 0; i < 40; i++) {
+            a.setSpeedFactor(i < 20 ? 0.6 : 1);
+            b.setSpeedFactor(i < 10 ? 1 : 0.8);
+            d.arcade(0.5, 0.1);
+            e1.setTicks(i);
+            e1.setPeriod(0.001 * (i + 1));
+            recorder.record(i * 20000000L, 0.5, 0.1);
+        }
+        recorder.close();
+
+        Encoder e3 = new Encoder(5, 6), e4 = new Encoder(7, 8);
+        MonitoredGearbox c = new MonitoredGearbox(1, 2, e3);
+        MonitoredGearbox f = new MonitoredGearbox(3, 4, e4);
+        TelemetryReplay replay = new TelemetryReplay(new Drivetrain(c, f), directory, "factor");
+        replay.step();
+        assertEquals(0.6, c.getSpeedFactor(), 0);
+        assertEquals(0.4 * 0.6, c.get(), 1e-9);
+        Encoder.Snapshot snapshot = new Encoder.Snapshot();
+        assertEquals(0.001, e3.getSnapshot(snapshot).period, 1e-12);
+        replay.run();
+        assertEquals(0, replay.getMismatches());
+        assertEquals(0.8, f.getSpeedFactor(), 0);
+        assertEquals(0.04, e3.getSnapshot(snapshot).period, 1e-12);
+    }
+
+    @Test
+    public void testReplayDecoding() throws IOException {
+        e1.setEncodingType(Encoder.EncodingType.k4X);
+        e1.setDistancePerPulse(1);
+        e1.setRate(0.5);
+        TelemetryRecorder recorder = new TelemetryRecorder(d, directory, "decoding", 4);
+        recorder.record(0, 0, 0);
+        recorder.close();
+
+        Encoder e3 = new Encoder(5, 6), e4 = new Encoder(7, 8);
+        e3.setEncodingType(Encoder.EncodingType.k4X);
+        e3.setDistancePerPulse(1);
+        TelemetryReplay replay = new TelemetryReplay(new Drivetrain(new MonitoredGearbox(1, 2, e3),
+                new MonitoredGearbox(3, 4, e4)), directory, "decoding");
+        replay.step();
+        assertEquals(e1.getRate(), e3.getRate(), 1e-9);
+        assertEquals(0.5, e3.getRate(), 1e-9);
+    }
+
+    @Test
+    public void testReplay() throws IOException {
+        TelemetryRecorder recorder = new TelemetryRecorder(d, directory, "match", 16);
+        for (int i = 0; i < 100; i++) {
+            double move = Math.sin(i / 10.0), rotate = Math.cos(i / 7.0);
+            d.arcade(move, rotate);
+            e1.setTicks(i);
+            e2.setTicks(2 * i);
+            recorder.record(i * 20000000L, move, rotate);
+        }
+        recorder.close();
+
+        Encoder e3 = new Encoder(5, 6), e4 = new Encoder(7, 8);
+        MonitoredGearbox c = new MonitoredGearbox(1, 2, e3);
+        MonitoredGearbox f = new MonitoredGearbox(3, 4, e4);
+        c.setWheelRadius(Vars.WHEEL_RADIUS);
+        f.setWheelRadius(Vars.WHEEL_RADIUS);
+        TelemetryReplay replay = new TelemetryReplay(new Drivetrain(c, f), directory, "match");
+        assertEquals(100, replay.getRecordCount());
+        assertEquals(100, replay.run());
+        assertEquals(0, replay.getMismatches());
+        assertTrue(a.get() == c.get() && b.get() == f.get());
+        assertEquals(99, e3.getRaw());
+        assertEquals(198, e4.getRaw());
+
+        replay.seek(50 * 20000000L - 1);
+        assertEquals(50, replay.getPosition());
+        replay.runUntil(60 * 20000000L);
+        assertEquals(60, replay.getPosition());
+        assertEquals(59, e3.getRaw());
+        replay.seek(Long.MAX_VALUE);
+        assertTrue(!replay.step());
+    }
+}
@@ -0,0 +1,128 @@
+package drivetrain;
+
+import edu.wpi.first.wpilibj.templates.Vars;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class TrajectoryCacheTest {
+
+    int generated;
+    TrajectoryCache.Generator counting = new TrajectoryCache.Generator() {
+        public MotionProfile generate(double[] waypoints, double maxVelocity,
+                double maxAcceleration, double jerkTime, double dt) {
+            generated++;
+            return TrajectoryCache.PATH_LENGTH.generate(waypoints, maxVelocity, maxAcceleration, jerkTime, dt);
+        }
+    };
+
+    @Test
+    public void testLookup() {
+        TrajectoryCache cache = new TrajectoryCache(counting, 2);
+        double[] path = {0, 0, 30, 40, 30, 100};
+        MotionProfile profile = cache.get(path, 100, 200, 0.1, 0.01);
+        assertEquals(110, profile.getDistance(), 1e-9);
+        path[5] = 0;
+        assertSame(profile, cache.get(new double[]{0, 0, 30, 40, 30, 100}, 100, 200, 0.1, 0.01));
+        assertEquals(1, generated);
+        assertEquals(1, cache.getHits());
+        assertTrue(profile != cache.get(new double[]{0, 0, 30, 40, 30, 100}, 100, 150, 0.1, 0.01));
+        assertEquals(2, generated);
+
+        double radius = Vars.WHEEL_RADIUS;
+        try {
+            Vars.WHEEL_RADIUS = radius * 2;
+            cache.get(new double[]{0, 0, 30, 40, 30, 100}, 100, 200, 0.1, 0.01);
+            assertEquals(3, generated);
+            assertEquals(2, cache.size());
+            assertEquals(1, cache.removeStale());
+        } finally {
+            Vars.WHEEL_RADIUS = radius;
+        }
+    }
+
+    @Test
+    public void testEviction() {
+        TrajectoryCache cache = new TrajectoryCache(counting, 2);
+        double[] a = {0, 0, 10, 0}, b = {0, 0, 20, 0}, c = {0, 0, 30, 0};
+        cache.get(a, 100, 200, 0.1, 0.01);
+        cache.get(b, 100, 200, 0.1, 0.01);
+        cache.get(a, 100, 200, 0.1, 0.01);
+        cache.get(c, 100, 200, 0.1, 0.01);
+        assertEquals(3, generated);
+        cache.get(a, 100, 200, 0.1, 0.01);
+        assertEquals(3, generated);
+        cache.get(b, 100, 200, 0.1, 0.01);
+        assertEquals(4, generated);
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        File file = File.createTempFile("trajectories", ".bin");
+        file.deleteOnExit();
+        TrajectoryCache cache = new TrajectoryCache(counting, 8);
+        MotionProfile profile = cache.get(new double[]{0, 0, 0, 50}, 100, 200, 0.1, 0.01);
+        cache.get(new double[]{0, 0, 0, 80}, 100, 200, 0.1, 0.01);
+        cache.save(file);
+
+        TrajectoryCache loaded = new TrajectoryCache(counting, 8);
+        assertEquals(2, loaded.load(file));
+        MotionProfile copy = loaded.get(new double[]{0, 0, 0, 50}, 100, 200, 0.1, 0.01);
+        assertEquals(2, generated);
+        assertEquals(profile.getLength(), copy.getLength());
+        for (int i = 0; i < profile.getLength(); i++) {
+            assertEquals(profile.getPosition(i), copy.getPosition(i), 0);
+            assertEquals(profile.getVelocity(i), copy.getVelocity(i), 0);
+            assertEquals(profile.getAcceleration(i), copy.getAcceleration(i), 0);
+        }
+    }
+
+    @Test
+    public void testSaveReplaces() throws IOException {
+        File directory = Files.createTempDirectory("trajectories").toFile();
+        File file = new File(directory, "cache.bin");
+        TrajectoryCache cache = new TrajectoryCache(counting, 8);
+        cache.get(new double[]{0, 0, 0, 50}, 100, 200, 0.1, 0.01);
+        cache.save(file);
+        cache.get(new double[]{0, 0, 0, 80}, 100, 200, 0.1, 0.01);
+        cache.save(file);
+        assertEquals(1, directory.list().length);
+        assertEquals(2, new TrajectoryCache(counting, 8).load(file));
+        file.delete();
+        directory.delete();
+    }
+
+    @Test
+    public void testCorruptLoad() throws IOException {
+        File file = File.createTempFile("trajectories", ".bin");
+        file.deleteOnExit();
+        TrajectoryCache cache = new TrajectoryCache(counting, 8);
+        cache.get(new double[]{0, 0, 0, 50}, 100, 200, 0.1, 0.01);
+        cache.save(file);
+        byte[] saved = Files.readAllBytes(file.toPath());
+
+        // the waypoint count of the first entry
+        int[] counts = {-1, Integer.MAX_VALUE, 4096};
+        for (int n = 0; n < counts.length; n++) {
+            byte[] corrupt = saved.clone();
+            ByteBuffer.wrap(corrupt).putInt(12, counts[n]);
+            Files.write(file.toPath(), corrupt);
+            TrajectoryCache loaded = new TrajectoryCache(counting, 8);
+            assertEquals(0, loaded.load(file));
+            assertEquals(0, loaded.size());
+        }
+        Files.write(file.toPath(), Arrays.copyOf(saved, saved.length - 8));
+        assertEquals(0, cache.load(file));
+        Files.write(file.toPath(), new byte[]{1, 2, 3});
+        assertEquals(0, cache.load(file));
+        assertEquals(1, cache.size());
+    }
+}
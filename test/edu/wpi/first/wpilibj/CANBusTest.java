@@ -0,0 +1,71 @@
+package edu.wpi.first.wpilibj;
+
+import drivetrain.Drivetrain;
+import drivetrain.MonitoredGearbox;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class CANBusTest {
+
+    CANBus bus;
+
+    public CANBusTest() {
+        bus = new CANBus(0.005);
+    }
+
+    @Test
+    public void testSetAppliedOnFlush() {
+        CANJaguar jaguar = new CANJaguar(bus, 1);
+        jaguar.set(0.5);
+        jaguar.set(0.75);
+        assertTrue(0 == jaguar.get());
+        bus.flush();
+        assertEquals(0.75, jaguar.get(), 1e-4);
+        assertEquals(1, bus.getFramesSent());
+        assertEquals(1, bus.getFramesOverwritten());
+        assertEquals(CANBus.frameBits(CANJaguar.kSetFrameLength), bus.getBitsSent());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateDevice() {
+        new CANJaguar(bus, 3);
+        new CANJaguar(bus, 3);
+    }
+
+    @Test
+    public void testDrivetrainSyncGroup() {
+        MonitoredGearbox left = new MonitoredGearbox(new CANJaguar(bus, 1), new CANJaguar(bus, 2), new Encoder(1, 2));
+        MonitoredGearbox right = new MonitoredGearbox(new CANJaguar(bus, 3), new CANJaguar(bus, 4), new Encoder(3, 4));
+        Drivetrain drivetrain = new Drivetrain(left, right);
+        drivetrain.setSyncGroup((byte) 4);
+        drivetrain.twoJoystickDrive(0.5, 0.5);
+        bus.flush();
+        assertEquals(0.5, left.get(), 1e-4);
+        assertEquals(-0.5, right.get(), 1e-4);
+        assertEquals(1, bus.getSyncFramesSent());
+        assertEquals(5, bus.getFramesSent());
+    }
+
+    @Test
+    public void testSaturation() {
+        int capacity = bus.getCapacity(CANJaguar.kSetFrameLength);
+        CANJaguar[] jaguars = new CANJaguar[capacity + 4];
+        for (int i = 0; i < jaguars.length; i++) {
+            jaguars[i] = new CANJaguar(bus, i);
+            jaguars[i].set(1);
+        }
+        bus.flush();
+        assertEquals(capacity, bus.getFramesSent());
+        assertEquals(4, bus.getFramesDeferred());
+        // lower identifiers win arbitration
+        assertEquals(1, jaguars[0].get(), 1e-4);
+        assertTrue(0 == jaguars[jaguars.length - 1].get());
+        assertTrue(bus.getUtilization() > 0.9 && bus.getUtilization() <= 1);
+        bus.flush();
+        assertEquals(1, jaguars[jaguars.length - 1].get(), 1e-4);
+    }
+}
@@ -0,0 +1,118 @@
+package edu.wpi.first.wpilibj;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class EdgeQueueTest {
+
+    DigitalSource a = new DigitalSource(1), b = new DigitalSource(2);
+    Encoder e = new Encoder(a, b, false, Encoder.EncodingType.k4X);
+
+    @Test
+    public void testSimulator() {
+        e.setDistancePerPulse(0.5);
+        QuadratureSimulator sim = new QuadratureSimulator(a, b);
+        sim.runUntil(1000, 0);
+        sim.runUntil(1000, 100000000);
+        assertEquals(400, sim.getEdges());
+        assertEquals(400, e.poll());
+        assertEquals(0, e.poll());
+        assertEquals(400, e.getRawLong());
+        assertEquals(50, e.getDistance(), 1e-9);
+        sim.runUntil(1000, 200000000);
+        e.poll();
+        assertEquals(500, e.getRate(), 1);
+
+        sim.advance(-25, 300000000);
+        e.poll();
+        assertEquals(700, e.getRawLong());
+        assertEquals(0, e.getDecodingErrors());
+    }
+
+    @Test
+    public void testEdgeTimes() {
+        e.setDistancePerPulse(1);
+        // one edge every millisecond, polled at once
+        boolean[] levels = {true, true, false, false, true, true, false, false};
+        for (int i = 0; i < levels.length; i++) {
+            DigitalSource source = i % 2 == 0 ? a : b;
+            source.set(levels[i], (i + 1) * 1000000L);
+        }
+        assertEquals(8, e.poll());
+        assertEquals(8, e.getRawLong());
+        // 1000 pulses per second, at 4 pulses per count
+        assertEquals(250, e.getRate(), 1e-6);
+    }
+
+    @Test
+    public void testFull() {
+        EdgeQueue queue = new EdgeQueue(3);
+        assertEquals(4, queue.getCapacity());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i, 0));
+        }
+        assertFalse(queue.offer(4, 0));
+        assertEquals(1, queue.getDropped());
+        assertEquals(4, queue.size());
+    }
+
+    @Test
+    public void testWrapAround() {
+        QuadratureSimulator sim = new QuadratureSimulator(a, b);
+        int capacity = e.getEdgeQueue().getCapacity();
+        long time = 0;
+        for (int i = 0; i < 10; i++) {
+            sim.advance((capacity - 100) / 4.0, time += 1000000);
+            assertEquals(capacity - 100, e.poll());
+        }
+        assertEquals(10 * (capacity - 100), e.getRawLong());
+        assertEquals(0, sim.getDropped());
+    }
+
+    @Test
+    public void testConcurrent() throws InterruptedException {
+        final int edges = 1000000;
+        final QuadratureSimulator sim = new QuadratureSimulator(a, b);
+        final EdgeQueue queue = e.getEdgeQueue();
+        Thread producer = new Thread(new Runnable() {
+            public void run() {
+                for (int i = 1; i <= edges; i++) {
+                    while (queue.size() >= queue.getCapacity()) {
+                        Thread.yield();
+                    }
+                    sim.advance(0.25, i * 1000L);
+                }
+            }
+        });
+        producer.start();
+        while (producer.isAlive()) {
+            e.poll();
+        }
+        producer.join();
+        e.poll();
+        assertEquals(0, sim.getDropped());
+        assertEquals(edges, e.getRawLong());
+        assertEquals(0, e.getDecodingErrors());
+    }
+
+    @Test
+    public void testFile() throws IOException {
+        File file = File.createTempFile("edges", ".bin");
+        file.deleteOnExit();
+        byte[] states = {2, 3, 1, 0, 2, 3, 1, 0, 1};
+        long[] times = new long[states.length];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = i * 1000;
+        }
+        EdgeFile.write(file, times, states, states.length);
+        assertEquals(states.length, EdgeFile.replay(file, a, b, null));
+        assertEquals(states.length, e.poll());
+        assertEquals(7, e.getRawLong());
+    }
+}
@@ -0,0 +1,209 @@
+package edu.wpi.first.wpilibj;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class EncoderTest {
+
+    Encoder e;
+    long now;
+
+    public EncoderTest() {
+        e = new Encoder(1, 2);
+        e.setDistancePerPulse(0.5);
+        e.setTimeSource(new TimeSource() {
+            public long nanoTime() {
+                return now;
+            }
+        });
+    }
+
+    @Test
+    public void testLongCount() {
+        e.setTicks(Integer.MAX_VALUE);
+        e.addTicks(10);
+        assertEquals(Integer.MAX_VALUE + 10L, e.getRawLong());
+        assertEquals((Integer.MAX_VALUE + 10L) * 0.5, e.getDistance(), 1e-6);
+    }
+
+    @Test
+    public void testSnapshot() {
+        e.count(10, 0.25);
+        Encoder.Snapshot snapshot = e.getSnapshot(new Encoder.Snapshot());
+        assertEquals(10, snapshot.count);
+        assertEquals(e.getDistance(), snapshot.getDistance(), 0);
+        assertEquals(e.getRate(), snapshot.getRate(), 0);
+    }
+
+    @Test
+    public void testConcurrentCounting() throws InterruptedException {
+        final int edges = 1000000;
+        Thread counter = new Thread(new Runnable() {
+            public void run() {
+                for (int i = 1; i <= edges; i++) {
+                    e.count(1, i);
+                }
+            }
+        });
+        counter.start();
+        Encoder.Snapshot snapshot = new Encoder.Snapshot();
+        while (counter.isAlive()) {
+            e.getSnapshot(snapshot);
+            // the period written with each edge is the count after it
+            assertTrue(snapshot.count == (long) snapshot.period);
+        }
+        counter.join();
+        assertEquals(edges, e.getRawLong());
+    }
+
+    @Test
+    public void testAdjustWhileCounting() throws InterruptedException {
+        final int edges = 1000000;
+        Thread counter = new Thread(new Runnable() {
+            public void run() {
+                for (int i = 1; i <= edges; i++) {
+                    e.count(1, i);
+                }
+            }
+        });
+        counter.start();
+        int added = 0;
+        while (counter.isAlive() || added < 1000) {
+            e.addTicks(1);
+            added++;
+        }
+        counter.join();
+        assertEquals(edges + added, e.getRawLong());
+        assertEquals(edges, e.getSnapshot(new Encoder.Snapshot()).period, 0);
+        e.setPeriod(0.5);
+        assertEquals(0.5, e.getSnapshot(new Encoder.Snapshot()).period, 0);
+        e.count(1, 0.25);
+        assertEquals(0.25, e.getSnapshot(new Encoder.Snapshot()).period, 0);
+    }
+
+    @Test
+    public void testConcurrentAdjust() throws InterruptedException {
+        final int adds = 200000;
+        Thread[] adjusters = new Thread[2];
+        for (int t = 0; t < adjusters.length; t++) {
+            adjusters[t] = new Thread(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < adds; i++) {
+                        e.addTicks(1);
+                    }
+                }
+            });
+            adjusters[t].start();
+        }
+        for (int i = 1; i <= adds; i++) {
+            e.count(1, i);
+        }
+        for (Thread adjuster : adjusters) {
+            adjuster.join();
+        }
+        assertEquals(3L * adds, e.getRawLong());
+    }
+
+    @Test
+    public void testRawClamped() {
+        e.setTicks(Integer.MAX_VALUE + 10L);
+        assertEquals(Integer.MAX_VALUE, e.getRaw());
+        e.setTicks(Integer.MIN_VALUE - 10L);
+        assertEquals(Integer.MIN_VALUE, e.getRaw());
+        e.setTicks(-5);
+        assertEquals(-5, e.getRaw());
+    }
+
+    @Test
+    public void testStoppedRate() {
+        e.setRate(0);
+        assertTrue(0 == e.getRate());
+        e.setDistancePerPulse(0);
+        e.setRate(0);
+        assertTrue(0 == e.getRate());
+    }
+
+    @Test
+    public void testMovingAverage() {
+        e.setRateMode(Encoder.RateMode.kMovingAverage, 8);
+        assertTrue(0 == e.getRate());
+        for (int i = 0; i < 20; i++) {
+            e.countAt(1, i * 10000000L); // 100 pulses per second
+        }
+        now = 190000000L;
+        assertEquals(50, e.getRate(), 1e-9);
+        Encoder.Snapshot snapshot = e.getSnapshot(new Encoder.Snapshot());
+        assertEquals(50, snapshot.getRate(), 1e-9);
+        assertEquals(0.01, snapshot.period / snapshot.decodingScaleFactor, 1e-12);
+    }
+
+    @Test
+    public void testRegression() {
+        e.setRateMode(Encoder.RateMode.kRegression, 16);
+        long time = 5000000000000L;
+        for (int i = 0; i < 1000; i++) {
+            // alternating 1 and 3 pulses every 10ms is 200 pulses per second
+            e.countAt(i % 2 == 0 ? 1 : 3, time + i * 10000000L);
+        }
+        now = time + 999 * 10000000L;
+        assertEquals(100, e.getRate(), 1);
+        e.reset();
+        assertTrue(0 == e.getRate());
+    }
+
+    @Test
+    public void testWindowStops() {
+        e.setRateMode(Encoder.RateMode.kMovingAverage, 8);
+        for (int i = 0; i < 20; i++) {
+            e.countAt(1, i * 10000000L);
+        }
+        now = 190000000L;
+        assertEquals(50, e.getRate(), 1e-9);
+        // no more pulses: the estimate expires after the max period
+        now += 400000000L;
+        assertEquals(50, e.getRate(), 1e-9);
+        now += 200000000L;
+        assertTrue(0 == e.getRate());
+        assertTrue(0 == e.getSnapshot(new Encoder.Snapshot()).getRate());
+
+        // a rate set after the last pulse takes precedence
+        for (int i = 0; i < 20; i++) {
+            e.countAt(1, now + i * 10000000L);
+        }
+        now += 190000000L;
+        assertEquals(50, e.getRate(), 1e-9);
+        e.setRate(0);
+        assertTrue(0 == e.getRate());
+        e.countAt(1, now += 10000000L);
+        assertEquals(50, e.getRate(), 1e-9);
+    }
+
+    @Test
+    public void testResetWhileCounting() throws InterruptedException {
+        e.setRateMode(Encoder.RateMode.kRegression, 16);
+        e.setMaxPeriod(Double.POSITIVE_INFINITY);
+        final int edges = 200000;
+        Thread counter = new Thread(new Runnable() {
+            public void run() {
+                for (int i = 1; i <= edges; i++) {
+                    e.countAt(1, i * 10000000L);
+                }
+            }
+        });
+        counter.start();
+        while (counter.isAlive()) {
+            e.reset();
+            double rate = e.getRate();
+            assertTrue(rate == 0 || Math.abs(rate - 50) < 1e-6);
+        }
+        counter.join();
+        for (int i = 1; i <= 16; i++) {
+            e.countAt(1, (edges + i) * 10000000L);
+        }
+        assertEquals(50, e.getRate(), 1e-6);
+    }
+}
@@ -0,0 +1,107 @@
+package edu.wpi.first.wpilibj;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class IndexTest {
+
+    DigitalSource a = new DigitalSource(1), b = new DigitalSource(2), index = new DigitalSource(3);
+    Encoder e = new Encoder(a, b, index);
+    QuadratureSimulator sim = new QuadratureSimulator(a, b, index, 100);
+    long[] times = new long[8];
+    long[] counts = new long[8];
+
+    @Test
+    public void testLatch() {
+        assertEquals(Encoder.EncodingType.k4X, e.getEncodingType());
+        e.setIndexMode(Encoder.IndexMode.kLatch);
+        sim.advance(0, 0);
+        sim.advance(350, 350000000);
+        e.poll();
+        assertEquals(1400, e.getRawLong());
+        assertEquals(3, e.getLatchTotal());
+        assertEquals(3, e.getLatches(times, counts));
+        assertEquals(1200, counts[0]);
+        assertEquals(800, counts[1]);
+        assertEquals(400, counts[2]);
+        assertEquals(300000000, times[0], 1000);
+        assertEquals(100000000, times[2], 1000);
+        assertEquals(0, e.getDecodingErrors());
+    }
+
+    @Test
+    public void testReset() {
+        e.setIndexMode(Encoder.IndexMode.kReset);
+        for (int i = 1; i <= 25; i++) {
+            sim.advance(10, i * 10000000L);
+            e.poll();
+        }
+        assertEquals(200, e.getRawLong());
+        assertEquals(2, e.getLatches(times, counts));
+        assertEquals(400, counts[0]);
+        assertEquals(400, counts[1]);
+    }
+
+    @Test
+    public void testResetKeepsWindow() {
+        final long[] now = {0};
+        e.setTimeSource(new TimeSource() {
+            public long nanoTime() {
+                return now[0];
+            }
+        });
+        e.setDistancePerPulse(1);
+        e.setRateMode(Encoder.RateMode.kMovingAverage, 64);
+        e.setIndexMode(Encoder.IndexMode.kReset);
+        for (int i = 1; i <= 20; i++) {
+            sim.advance(10, i * 10000000L);
+            e.poll();
+        }
+        now[0] = 200000000L;
+        // the last edge raised the index and reset the count
+        assertEquals(0, e.getRawLong());
+        assertEquals(2, e.getLatchTotal());
+        assertEquals(1000, e.getRate(), 10);
+    }
+
+    @Test
+    public void testNone() {
+        sim.advance(250, 250000000);
+        e.poll();
+        assertEquals(1000, e.getRawLong());
+        assertEquals(0, e.getLatchTotal());
+        assertEquals(0, e.getLatches(times, counts));
+    }
+
+    @Test
+    public void testModeSwitch() {
+        index.set(true, 1000);
+        e.poll();
+        e.setIndexMode(Encoder.IndexMode.kLatch);
+        a.set(true, 2000);
+        e.poll();
+        // the index was already high before the mode was selected
+        assertEquals(0, e.getLatchTotal());
+        index.set(false, 3000);
+        index.set(true, 4000);
+        e.poll();
+        assertEquals(1, e.getLatchTotal());
+    }
+
+    @Test
+    public void testOverwrite() {
+        e.setIndexMode(Encoder.IndexMode.kLatch);
+        for (int i = 1; i <= Encoder.kLatchCapacity + 10; i++) {
+            sim.advance(100, i * 1000000L);
+            e.poll();
+        }
+        long[] all = new long[Encoder.kLatchCapacity * 2];
+        long[] allCounts = new long[all.length];
+        assertEquals(Encoder.kLatchCapacity - 1, e.getLatches(all, allCounts));
+        assertEquals(400L * (Encoder.kLatchCapacity + 10), allCounts[0]);
+    }
+}
@@ -0,0 +1,92 @@
+package edu.wpi.first.wpilibj;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EthanL
+ */
+public class QuadratureDecoderTest {
+
+    static final byte[] FORWARD = {2, 3, 1, 0};
+    static final byte[] BACKWARD = {1, 3, 2, 0};
+
+    static byte[] cycles(byte[] sequence, int count) {
+        byte[] states = new byte[sequence.length * count];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = sequence[i % sequence.length];
+        }
+        return states;
+    }
+
+    @Test
+    public void testEncodingTypes() {
+        byte[] forward = cycles(FORWARD, 100);
+        byte[] backward = cycles(BACKWARD, 30);
+        QuadratureDecoder x1 = new QuadratureDecoder(Encoder.EncodingType.k1X);
+        QuadratureDecoder x2 = new QuadratureDecoder(Encoder.EncodingType.k2X);
+        QuadratureDecoder x4 = new QuadratureDecoder(Encoder.EncodingType.k4X);
+        assertEquals(100, x1.decode(forward, 0, forward.length));
+        assertEquals(200, x2.decode(forward, 0, forward.length));
+        assertEquals(400, x4.decode(forward, 0, forward.length));
+        assertEquals(-30, x1.decode(backward, 0, backward.length));
+        assertEquals(-60, x2.decode(backward, 0, backward.length));
+        assertEquals(-120, x4.decode(backward, 0, backward.length));
+        assertEquals(0, x4.getErrors());
+    }
+
+    @Test
+    public void testPartialBuffers() {
+        byte[] forward = cycles(FORWARD, 10);
+        QuadratureDecoder whole = new QuadratureDecoder(Encoder.EncodingType.k4X);
+        QuadratureDecoder split = new QuadratureDecoder(Encoder.EncodingType.k4X);
+        int total = 0;
+        for (int i = 0; i < forward.length; i += 3) {
+            total += split.decode(forward, i, Math.min(3, forward.length - i));
+        }
+        assertEquals(whole.decode(forward, 0, forward.length), total);
+        assertEquals(whole.getState(), split.getState());
+    }
+
+    @Test
+    public void testJitter() {
+        // bouncing on one edge goes back and forth without drifting
+        byte[] states = {2, 0, 2, 0, 2, 3, 2, 3};
+        QuadratureDecoder x1 = new QuadratureDecoder(Encoder.EncodingType.k1X);
+        assertEquals(1, x1.decode(states, 0, states.length));
+        QuadratureDecoder x4 = new QuadratureDecoder(Encoder.EncodingType.k4X);
+        assertEquals(2, x4.decode(states, 0, states.length));
+    }
+
+    @Test
+    public void testErrors() {
+        byte[] states = {3, 0, 2, 1};
+        QuadratureDecoder x4 = new QuadratureDecoder(Encoder.EncodingType.k4X);
+        assertEquals(1, x4.decode(states, 0, states.length));
+        assertEquals(3, x4.getErrors());
+    }
+
+    @Test
+    public void testEncoder() {
+        Encoder e = new Encoder(1, 2, false, Encoder.EncodingType.k4X);
+        e.setDistancePerPulse(0.5);
+        assertEquals(0.25, e.getDecodingScaleFactor(), 0);
+        byte[] forward = cycles(FORWARD, 10);
+        assertEquals(40, e.decode(forward, 0, forward.length, 1000000));
+        assertEquals(40, e.getRawLong());
+        assertEquals(10, e.get());
+        assertEquals(5, e.getDistance(), 1e-9);
+
+        e.setRate(3);
+        assertEquals(3, e.getRate(), 1e-9);
+        e.setDistance(10);
+        assertEquals(10, e.getDistance(), 1e-9);
+
+        e.setReverseDirection(true);
+        assertEquals(-40, e.decode(forward, 0, forward.length, 2000000));
+        e.setEncodingType(Encoder.EncodingType.k2X);
+        assertEquals(0.5, e.getDecodingScaleFactor(), 0);
+        assertEquals(-20, e.decode(forward, 0, forward.length, 3000000));
+    }
+}